@@ -0,0 +1,188 @@
+package com.company;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Measures how many bytes a step allocates, in total and in each phase of
+ * the step, on a fixed-seed headless scenario, and fails when a budget is
+ * exceeded, so that a hot path once made allocation-free stays that way.
+ *
+ * Run with: java -cp benchmarks/target/benchmarks.jar com.company.AllocationHarness
+ * [--steps n] [--warmup n] [--size DxW] [--seed s] [--density d]
+ * [--budget bytes] [--budget PHASE=bytes]...
+ *
+ * Budgets are in bytes per step; a whole step may allocate 4096 bytes
+ * unless --budget says otherwise, and -1 lifts a budget. The whole step runs on the calling
+ * thread, so everything it allocates is counted; what no phase accounts
+ * for, such as ageing and the weather, is reported as OTHER. The default
+ * scenario is one in which every species lives through the measured
+ * steps, so that each species' paths are measured; a species dying out
+ * before the end fails the run too. The exit status is 1 if any budget
+ * is exceeded or a species dies out, and 2 if the arguments are wrong.
+ * The build runs the default scenario in the verify phase.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class AllocationHarness
+{
+    private static final int DEFAULT_STEPS = 500;
+    private static final int DEFAULT_WARMUP = 200;
+    private static final int DEFAULT_DEPTH = 100;
+    private static final int DEFAULT_WIDTH = 200;
+    // Every species lives through the default measured steps with this seed.
+    private static final long DEFAULT_SEED = 24;
+    // The bytes a whole step may allocate unless told otherwise; a few
+    // times what the default scenario allocates today.
+    private static final long DEFAULT_BUDGET = 4096;
+    // The name the unattributed bytes are reported and budgeted under.
+    private static final String OTHER = "OTHER";
+    private static final String USAGE = "Usage: AllocationHarness [--steps n] [--warmup n] [--size DxW]"
+        + " [--seed s] [--density d] [--budget bytes] [--budget PHASE=bytes]...";
+
+    public static void main(String[] args)
+    {
+        // Must be set before StepMetrics is loaded, as its flags are constants.
+        System.setProperty("simulation.metrics", "true");
+        System.setProperty("simulation.metrics.allocation", "true");
+
+        int steps = DEFAULT_STEPS;
+        int warmup = DEFAULT_WARMUP;
+        int depth = DEFAULT_DEPTH;
+        int width = DEFAULT_WIDTH;
+        long seed = DEFAULT_SEED;
+        double density = 1.0;
+        long totalBudget = DEFAULT_BUDGET;
+        Map<String, Long> phaseBudgets = new HashMap<>();
+        try {
+            for(int i = 0; i < args.length; i++) {
+                if(i + 1 == args.length) {
+                    usage();
+                }
+                String option = args[i];
+                String value = args[++i];
+                switch(option) {
+                    case "--steps":
+                        steps = Integer.parseInt(value);
+                        break;
+                    case "--warmup":
+                        warmup = Integer.parseInt(value);
+                        break;
+                    case "--size":
+                        String[] size = value.split("x");
+                        depth = Integer.parseInt(size[0]);
+                        width = Integer.parseInt(size[1]);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(value);
+                        break;
+                    case "--density":
+                        density = Double.parseDouble(value);
+                        break;
+                    case "--budget":
+                        int equals = value.indexOf('=');
+                        if(equals < 0) {
+                            totalBudget = Long.parseLong(value);
+                        }
+                        else {
+                            String phase = value.substring(0, equals).toUpperCase();
+                            if(!phase.equals(OTHER)) {
+                                StepMetrics.Phase.valueOf(phase);
+                            }
+                            phaseBudgets.put(phase, Long.parseLong(value.substring(equals + 1)));
+                        }
+                        break;
+                    default:
+                        usage();
+                }
+            }
+        }
+        catch(IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            usage();
+        }
+        if(!StepMetrics.ALLOCATION) {
+            System.err.println("This virtual machine cannot count the bytes a thread allocates.");
+            System.exit(2);
+        }
+
+        Simulator simulator = new Simulator(new Field(Terrain.standard(depth, width)), SimulationParameters.defaults(),
+                                            seed, density, false);
+        for(int step = 0; step < warmup; step++) {
+            simulator.simulateOneStep();
+        }
+
+        StepMetrics metrics = StepMetrics.get();
+        Map<StepMetrics.Phase, Long> before = new EnumMap<>(StepMetrics.Phase.class);
+        for(StepMetrics.Phase phase : StepMetrics.Phase.values()) {
+            before.put(phase, metrics.getAllocatedBytes(phase));
+        }
+        // The step each species died out at, or 0; watching allocates nothing.
+        Species[] allSpecies = Species.values();
+        int[] extinctAt = new int[allSpecies.length];
+        long start = StepMetrics.currentThreadAllocatedBytes();
+        for(int step = 0; step < steps; step++) {
+            simulator.simulateOneStep();
+            FieldStats stats = simulator.getField().getStats();
+            for(Species species : allSpecies) {
+                if(extinctAt[species.ordinal()] == 0 && stats.getCount(species) == 0) {
+                    extinctAt[species.ordinal()] = simulator.getStep();
+                }
+            }
+        }
+        long total = (StepMetrics.currentThreadAllocatedBytes() - start) / steps;
+
+        System.out.printf("Allocation per step over %d steps after %d of warm-up, on a %dx%d field, seed %d, density %.2f%n",
+                          steps, warmup, depth, width, seed, density);
+        System.out.println("  Population: " + simulator.getField().getStats().getPopulationDetails());
+        boolean failed = report("TOTAL", total, totalBudget);
+        long attributed = 0;
+        for(StepMetrics.Phase phase : StepMetrics.Phase.values()) {
+            long bytes = (metrics.getAllocatedBytes(phase) - before.get(phase)) / steps;
+            attributed += bytes;
+            failed |= report(phase.name(), bytes, phaseBudgets.getOrDefault(phase.name(), -1L));
+        }
+        failed |= report(OTHER, total - attributed, phaseBudgets.getOrDefault(OTHER, -1L));
+        boolean extinct = false;
+        for(Species species : Species.values()) {
+            if(extinctAt[species.ordinal()] != 0) {
+                System.out.printf("  %s died out at step %d, so its paths were not all measured.%n",
+                                  species, extinctAt[species.ordinal()]);
+                extinct = true;
+            }
+        }
+        if(failed) {
+            System.out.println("Allocation budget exceeded.");
+        }
+        if(extinct) {
+            System.out.println("Choose a --seed or --size in which every species lives through the measured steps.");
+        }
+        if(failed || extinct) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Print the bytes allocated per step by one part of the step.
+     * @param name The name of the part.
+     * @param bytes The bytes it allocated per step.
+     * @param budget The most it may allocate, or -1 for no limit.
+     * @return Whether it allocated more than its budget.
+     */
+    private static boolean report(String name, long bytes, long budget)
+    {
+        boolean exceeded = budget >= 0 && bytes > budget;
+        System.out.printf("  %-10s %12d bytes/step%s%n", name, bytes,
+                          budget < 0 ? "" : String.format("  (budget %d)%s", budget, exceeded ? "  EXCEEDED" : ""));
+        return exceeded;
+    }
+
+    /**
+     * Print how to run the harness and exit.
+     */
+    private static void usage()
+    {
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+}
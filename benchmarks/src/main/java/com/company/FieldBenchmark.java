@@ -0,0 +1,71 @@
+package com.company;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Neighbourhood queries on a populated field. The field is never changed,
+ * so it is built once per trial.
+ *
+ * @author Nicholas Pezzotti
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class FieldBenchmark
+{
+    // How many locations are queried in turn.
+    private static final int SAMPLES = 4096;
+
+    @State(Scope.Thread)
+    public static class FieldState extends World
+    {
+        Location[] locations;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException
+        {
+            build();
+            Random rand = new Random(seed);
+            locations = new Location[SAMPLES];
+            for(int i = 0; i < SAMPLES; i++) {
+                locations[i] = field.getLocation(rand.nextInt(field.getDepth()), rand.nextInt(field.getWidth()));
+            }
+        }
+
+        Location nextLocation()
+        {
+            next = (next + 1) & (SAMPLES - 1);
+            return locations[next];
+        }
+    }
+
+    @Benchmark
+    public List<Location> adjacentLocations(FieldState state)
+    {
+        return state.field.adjacentLocations(state.nextLocation());
+    }
+
+    @Benchmark
+    public List<Location> getFreeAdjacentLocations(FieldState state)
+    {
+        return state.field.getFreeAdjacentLocations(state.nextLocation());
+    }
+}
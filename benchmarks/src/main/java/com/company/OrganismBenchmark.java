@@ -0,0 +1,112 @@
+package com.company;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One act of every animal in the field, or one pass of the grass layer.
+ * Acting changes the field, so each measured iteration starts again from
+ * a freshly populated world and then lets only animals, or only grass,
+ * act, step after step, with the newborns joining in.
+ *
+ * @author Nicholas Pezzotti
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class OrganismBenchmark
+{
+    @State(Scope.Thread)
+    public static class AnimalState extends World
+    {
+        List<Organism> actors;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws IOException
+        {
+            build();
+            actors = new ArrayList<>();
+            for(Organism organism : organismsInField()) {
+                if(organism instanceof Animal) {
+                    actors.add(organism);
+                }
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class GrassState extends World
+    {
+        Grass grass;
+        int step;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws IOException
+        {
+            build();
+            // In the rain grass spreads as well as ages, so the layer keeps growing back.
+            field.restoreTime(0, true, WeatherType.RAIN);
+            grass = field.getGrass();
+            step = 0;
+        }
+    }
+
+    @Benchmark
+    public int animalAct(AnimalState state)
+    {
+        return actAll(state.actors);
+    }
+
+    @Benchmark
+    public int grassStep(GrassState state)
+    {
+        Grass grass = state.grass;
+        grass.startStep(state.field, state.seed, state.step++);
+        for(int colour = 0; colour < 4; colour++) {
+            int[] blocks = grass.getBlocks(colour);
+            for(int i = 0; i < grass.getBlockCount(colour); i++) {
+                grass.act(blocks[i]);
+            }
+        }
+        grass.endStep();
+        return grass.getCounter().getCount();
+    }
+
+    /**
+     * Let every live organism act once, then replace the dead with the newborns.
+     * @return The number of organisms left.
+     */
+    private static int actAll(List<Organism> actors)
+    {
+        List<Organism> newborns = new ArrayList<>();
+        List<Organism> survivors = new ArrayList<>(actors.size());
+        for(Organism organism : actors) {
+            if(organism.isAlive()) {
+                organism.act(newborns);
+            }
+            if(organism.isAlive()) {
+                survivors.add(organism);
+            }
+        }
+        actors.clear();
+        actors.addAll(survivors);
+        actors.addAll(newborns);
+        return actors.size();
+    }
+}
@@ -0,0 +1,76 @@
+package com.company;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A full simulation step and the statistics check that decides whether the
+ * simulation is still viable.
+ *
+ * @author Nicholas Pezzotti
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class StepBenchmark
+{
+    @State(Scope.Thread)
+    public static class StepState extends World
+    {
+        // How many threads the step runs on; more than one steps in tiles.
+        @Param({"1", "4"})
+        public int threads;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws IOException
+        {
+            build();
+            simulator.setParallelism(threads);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown()
+        {
+            simulator.setParallelism(1);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class StatsState extends World
+    {
+        @Setup(Level.Trial)
+        public void setUp() throws IOException
+        {
+            build();
+        }
+    }
+
+    @Benchmark
+    public int simulateOneStep(StepState state)
+    {
+        state.simulator.simulateOneStep();
+        return state.simulator.getStep();
+    }
+
+    @Benchmark
+    public boolean fieldStatsCount(StatsState state)
+    {
+        return state.field.getStats().isViable();
+    }
+}
@@ -0,0 +1,79 @@
+package com.company;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The world every benchmark runs against: a headless simulator of a given
+ * size and initial density, populated from a fixed seed so that results
+ * can be compared between commits.
+ *
+ * @author Nicholas Pezzotti
+ */
+@State(Scope.Thread)
+public abstract class World
+{
+    // The size of the field, as depth x width.
+    @Param({"80x120", "500x500", "1000x1000", "2000x2000"})
+    public String size;
+
+    // Multiplies every creation probability when the field is populated.
+    @Param({"0.5", "1.0"})
+    public double density;
+
+    // The seed every random number in the simulation is derived from.
+    @Param({"42"})
+    public long seed;
+
+    // The land and water: "standard" for the built-in shape at the given
+    // size, otherwise an image or binary map file, which also sets the size.
+    @Param({"standard"})
+    public String terrain;
+
+    protected Simulator simulator;
+    protected Field field;
+
+    /**
+     * Build and populate a fresh simulator for the current parameters.
+     * @throws IOException If the terrain file cannot be read.
+     */
+    protected void build() throws IOException
+    {
+        simulator = new Simulator(new Field(buildTerrain()), SimulationParameters.defaults(), seed, density, false);
+        field = simulator.getField();
+    }
+
+    /**
+     * @return The terrain for the current parameters.
+     * @throws IOException If the terrain file cannot be read.
+     */
+    private Terrain buildTerrain() throws IOException
+    {
+        if(!terrain.equals("standard")) {
+            return Terrain.load(Paths.get(terrain));
+        }
+        String[] dimensions = size.split("x");
+        return Terrain.standard(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]));
+    }
+
+    /**
+     * @return Every organism currently placed in the field, in index order.
+     */
+    protected List<Organism> organismsInField()
+    {
+        List<Organism> organisms = new ArrayList<>();
+        for(int index = 0; index < field.getCellCount(); index++) {
+            Organism organism = field.getObjectAt(index);
+            if(organism != null) {
+                organisms.add(organism);
+            }
+        }
+        return organisms;
+    }
+}
@@ -0,0 +1,25 @@
+package com.company;
+
+/**
+ * When organisms take their turn. The population is kept in one bucket
+ * per activity, so that a bucket whose organisms would do nothing in a
+ * step can be skipped without looking at them.
+ *
+ * @author Nicholas Pezzotti
+ */
+public enum Activity
+{
+    // Acts day and night.
+    NIGHT_ACTIVE,
+    // Acts only by day; does nothing at all, not even age, at night.
+    DAY_ONLY;
+
+    /**
+     * @param day Whether it is day.
+     * @return Whether organisms of this activity take a turn at all.
+     */
+    public boolean isAwake(boolean day)
+    {
+        return day || this != DAY_ONLY;
+    }
+}
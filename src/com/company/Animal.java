@@ -1,5 +1,5 @@
 package com.company;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
@@ -16,6 +16,16 @@ public abstract class Animal extends Organism {
     private int foodLevel;
     private static final Random rand = Randomizer.getRandom();
     private static final double SICK_MUTATION_PROBABILITY = 0.1;
+    // Marks a prey mask not yet worked out. No real mask has bit 0 set,
+    // as no species has the id NONE, so an animal that eats nothing still
+    // has its mask worked out only once.
+    private static final int UNKNOWN_PREY = 1;
+    // The prey of each species as a mask of species bits, by species ordinal, filled on first use.
+    private static final int[] preyMasks = new int[Species.values().length];
+
+    static {
+        Arrays.fill(preyMasks, UNKNOWN_PREY);
+    }
 
     /**
      * Create a new animal at location in field.
@@ -29,6 +39,19 @@ public abstract class Animal extends Organism {
         setGender(gender);
     }
 
+    /**
+     * Brings a dead animal back to life as a new one, with a new gender
+     * @param randomAge whether to spawn it as part of populating the board or as an offspring
+     * @param field the field the animal is in
+     * @param location the specific location within the field
+     * @param isSick whether the animal is sick or not
+     */
+    @Override
+    protected void reset(boolean randomAge, Field field, Location location, boolean isSick) {
+        setGender(rand.nextBoolean());
+        super.reset(randomAge, field, location, isSick);
+    }
+
     /**
      * Increments the animal's food value by the prey's food value
      * @param preyFoodValue the prey's food value
@@ -49,31 +72,57 @@ public abstract class Animal extends Organism {
 
     /**
      * Implements the act method in Organism. Specifies what animals do.
-     * Makes them age, be hungry, breed, feed, move and die.
+     * Makes them age, be hungry, breed, feed, move and die. The cells
+     * around the animal are looked at once, and breeding, feeding and
+     * moving all share that view, and breeding and feeding are skipped
+     * when no mate or prey is near.
      * @param newOrganisms a list of offspring as a result of breeding
      */
     public void act(List<Organism> newOrganisms) {
         incrementAge();
         incrementHunger();
         if (isAlive()) {
-            breed(newOrganisms);
-            Location newLocation = findFood();
-            move(newLocation); 
+            // Only a sample of turns is measured; see StepMetrics.
+            boolean measured = StepMetrics.ENABLED && StepMetrics.get().sampleTurn();
+            long start = measured ? StepMetrics.get().start() : 0;
+            Neighbourhood around = Neighbourhood.of(this);
+            if (around.hasAny(getSpecies().getBit())) {
+                breed(around, newOrganisms);
+            }
+            if (measured) {
+                start = StepMetrics.get().recordSample(StepMetrics.Phase.BREED, start);
+            }
+            Location newLocation = null;
+            if (getFoodLevel() < getMaxFood() && around.hasAny(getPreyMask())) {
+                newLocation = findFood(around);
+            }
+            if (measured) {
+                start = StepMetrics.get().recordSample(StepMetrics.Phase.FIND_FOOD, start);
+            }
+            move(around, newLocation);
+            if (measured) {
+                StepMetrics.get().recordSample(StepMetrics.Phase.MOVE, start);
+            }
         }
     }
 
     /**
      * Makes an animal find a free location to move to, if it doesn't
      * it dies because of overcrowding
-     * @param nextLocation the animal's next location
+     * @param around the cells around the animal
+     * @param nextLocation the animal's next location, or null to find one
      */
-    private void move(Location nextLocation) {
+    private void move(Neighbourhood around, Location nextLocation) {
         if (nextLocation == null) {
-                nextLocation = getField().freeAdjacentLocation(getLocation());
-                if (!isCorrectTerritory(nextLocation)) {
-                    nextLocation = getField().freeAdjacentLocation(getLocation()); // "overcrowding"
-                } 
+            int free = around.nextFree(-1);
+            if (free >= 0 && !around.isRightTerritory(free)) {
+                // One more try, which may land on the same cell.
+                free = around.anyFree();
+            }
+            if (free >= 0) {
+                nextLocation = around.location(free);
             }
+        }
 
         if(nextLocation != null) {
             //actually sets the location found above
@@ -85,20 +134,6 @@ public abstract class Animal extends Organism {
         }
     }
 
-    /**
-     * Decides if the animal can and wants to eat the organism encountered.
-     * it checks for class compatibility, state of the prey and whether the
-     * animal is full or not
-     * @param organism the organism encountered
-     * @return whether the animal eats the organism encountered
-     */
-    private boolean canEat(Organism organism) {
-        if (isPrey(organism) && organism.isAlive() && getFoodLevel() < getMaxFood()) {
-            return true;
-        }
-        return false;
-    }
-
     /**
      * Calculates using the breeding probability and the max litter size if the
      * animals breed and how many offspring are created
@@ -134,20 +169,19 @@ public abstract class Animal extends Organism {
      * Identifies which animals are in the surrounding locations, decides
      * if breeding is possible and creates new animals with properties
      * based on the attribute values held in the parents
+     * @param around the cells around the animal
      * @param newOrganisms a list of offspring
      */
-    private void breed(List<Organism> newOrganisms) {
-        List<Location> surrounding = getField().adjacentLocations(getLocation());
-        for (Location location : surrounding) {
-            if (getField().getObjectAt(location) != null) {
-                Organism partner = (Organism) getField().getObjectAt(location);
-                if (partner.getClass() == this.getClass()) {
-                    if ((((Animal) partner).getGender() != getGender())) {
-                        if ((bothParentsSick(partner) && rand.nextDouble() >= getImmunity()) || (rand.nextDouble() < SICK_MUTATION_PROBABILITY)) {
-                            giveBirth(newOrganisms, true);
-                        }
-                        giveBirth(newOrganisms, false);
+    private void breed(Neighbourhood around, List<Organism> newOrganisms) {
+        int species = getSpecies().getId();
+        for (int k = 0; k < around.size(); k++) {
+            if (around.speciesId(k) == species) {
+                Organism partner = around.occupant(k);
+                if ((((Animal) partner).getGender() != getGender())) {
+                    if ((bothParentsSick(partner) && rand.nextDouble() >= getImmunity()) || (rand.nextDouble() < SICK_MUTATION_PROBABILITY)) {
+                        giveBirth(around, newOrganisms, true);
                     }
+                    giveBirth(around, newOrganisms, false);
                 }
             }
         }
@@ -165,59 +199,71 @@ public abstract class Animal extends Organism {
 
     /**
      * Creates offspring and places them around the parent
+     * @param around the cells around the parent
      * @param offSpring the list of offspring to be spawned
      * @param isSick whether the offspring will spawn sick or not
      */
-    private void giveBirth(List<Organism> offSpring, boolean isSick) {
-        Field field = getField();
-        List<Location> free = field.getFreeAdjacentLocations(getLocation());
+    private void giveBirth(Neighbourhood around, List<Organism> offSpring, boolean isSick) {
         int births = numberOfBirths();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            if (isCorrectTerritory(loc)) {
-                offSpring.add(createBaby(false, field, loc, isSick));
+        for (int k = around.nextFree(-1); k >= 0 && births > 0; k = around.nextFree(k)) {
+            births--;
+            if (around.isRightTerritory(k)) {
+                Organism baby = createBaby(false, getField(), around.location(k), isSick);
+                offSpring.add(baby);
+                around.occupy(k, baby);
             }
         }
     }
 
     /**
-     * Looks around the object for possible prey, if it's possible to eat an
-     * animal, it does so and the method returns the prey's previous location
-     * else, null is returned
+     * Looks around the hungry animal for possible prey, if it's possible to
+     * eat an animal, or grass for animals that graze, it does so and the
+     * method returns the prey's previous location else, null is returned.
+     * Only the species in each cell is looked at until prey is found.
+     * @param around the cells around the animal
      * @return the location of the prey if hunt is succesfull or null if it is not
      */
-    private Location findFood() {
-        Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
-        while(it.hasNext()) {
-            Location where = it.next();
-            Organism organism = (Organism) field.getObjectAt(where);
-            if(canEat(organism)) {
-                organism.setDead();
-                feed(organism.getFoodValue());
-                return where;
+    private Location findFood(Neighbourhood around) {
+        int preyMask = getPreyMask();
+        boolean grazes = (preyMask & Species.GRASS.getBit()) != 0;
+        for (int k = 0; k < around.size(); k++) {
+            int species = around.speciesId(k);
+            if ((preyMask & Species.bitOf(species)) != 0) {
+                Organism organism = around.occupant(k);
+                if (organism.isAlive()) {
+                    organism.setDead();
+                    around.vacate(k);
+                    feed(organism.getFoodValue());
+                    return around.location(k);
+                }
+            }
+            else if (species == Species.NONE && grazes && getField().getGrass().remove(around.cell(k))) {
+                around.vacate(k);
+                feed(Grass.FOOD_VALUE);
+                return around.location(k);
             }
         }
         return null;
     }
 
     /**
-     * @param organism the organism trying to be eaten
-     * @return whether the organism encountered is an edible organism or not
+     * @return the species the animal eats, as a mask of species bits
      */
-    private boolean isPrey(Organism organism) {
-        if (organism == null) return false;
-        for (Class c : getPossiblePrey()) {
-            if (organism.getClass() ==  c) return true;
+    private int getPreyMask() {
+        int species = getSpecies().ordinal();
+        int mask = preyMasks[species];
+        if (mask == UNKNOWN_PREY) {
+            // Working it out twice on two threads does no harm.
+            mask = Species.maskOf(getPossiblePrey());
+            preyMasks[species] = mask;
         }
-        return false;
+        return mask;
     }
 
     /**
      * @return the gender of the animal
      */
-    private boolean getGender() {
+    boolean getGender() {
         return gender;
     }
 
@@ -225,7 +271,7 @@ public abstract class Animal extends Organism {
      * sets the gender of an animal
      * @param gender either true or false for male and female
      */
-    private void setGender(boolean gender) {
+    void setGender(boolean gender) {
         this.gender = gender;
     }
 
@@ -0,0 +1,442 @@
+package com.company;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A saved simulation, read back from a binary checkpoint file. A file
+ * holds a header (MAGIC, VERSION, the depth and width, the seed and step,
+ * the clock and the weather), the terrain, the simulation parameters, one
+ * fixed-size record per organism, in the order the simulation keeps them,
+ * and then the blocks of the grass layer that hold grass, each with its
+ * index. Random numbers are drawn from streams keyed by the seed and the
+ * step, so the seed and the step are all the random state there is: a
+ * restored simulation goes on exactly as the saved one would have.
+ *
+ * Version 1 files, which saved grass as organisms, and version 2 files
+ * can still be read. Neither saved the parameters, so a simulation
+ * restored from one keeps the parameters it already had.
+ *
+ * Files are written through a FileChannel with a large buffer and read by
+ * memory-mapping them. Every count, ordinal and cell index in a file is
+ * checked against the saved field when it is opened, so a corrupt file is
+ * rejected before anything is restored from it.
+ *
+ * @author Nicholas Pezzotti
+ */
+public final class Checkpoint
+{
+    // Marks the start of a checkpoint file ("CKPT").
+    public static final int MAGIC = 0x434b5054;
+    // The version of the format written.
+    public static final int VERSION = 3;
+    // The version that saved grass as organism records.
+    private static final int ORGANISM_GRASS_VERSION = 1;
+    // The last version that did not save the parameters.
+    private static final int NO_PARAMETERS_VERSION = 2;
+    // How many times a day or a night the clock ticks.
+    private static final int TICKS = 12;
+    // Where the version, the weather and the organism count are in the
+    // header, and the size of the header, in bytes.
+    static final int VERSION_OFFSET = 4;
+    static final int WEATHER_OFFSET = 4 + 4 + 4 + 4 + 8 + 4 + 4 + 1;
+    static final int COUNT_OFFSET = WEATHER_OFFSET + 1;
+    static final int HEADER_BYTES = COUNT_OFFSET + 4;
+    // The size of the parameters, which follow the terrain: their shape, then every value.
+    static final int PARAMETER_BYTES = 4 + 4 + 8 * SimulationParameters.Name.values().length * Species.values().length;
+    // The size of each organism's record: species, flags, cell index, age and food level.
+    static final int RECORD_BYTES = 1 + 1 + 4 + 4 + 4;
+    // Where the cell index is in a record.
+    static final int RECORD_INDEX_OFFSET = 2;
+    // The flags of a record.
+    private static final int SICK = 1, GENDER = 2, IN_FIELD = 4;
+    // The size of each saved grass block: its index and its cells.
+    private static final int GRASS_BLOCK_BYTES = 4 + Grass.BLOCK_CELLS;
+    // How much is written to the channel at a time.
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private final long seed;
+    private final int step;
+    private final int time;
+    private final boolean day;
+    private final WeatherType weather;
+    private final Terrain terrain;
+    // The saved parameters, or null if the file is older than they are.
+    private final SimulationParameters parameters;
+    private final int organismCount;
+    // The file, positioned at the first record.
+    private final ByteBuffer records;
+    // The saved grass blocks, and the file positioned at the first, or
+    // null for a version 1 file.
+    private final int grassBlockCount;
+    private final ByteBuffer grassBlocks;
+
+    /**
+     * Read the header and terrain of a checkpoint.
+     * @param map The whole file.
+     * @param path The file's path, for error messages.
+     * @throws IOException If the file is not a checkpoint this version reads.
+     */
+    private Checkpoint(ByteBuffer map, Path path) throws IOException
+    {
+        if(map.remaining() < HEADER_BYTES || map.getInt() != MAGIC) {
+            throw new IOException("Not a checkpoint file: " + path);
+        }
+        int version = map.getInt();
+        if(version < ORGANISM_GRASS_VERSION || version > VERSION) {
+            throw new IOException("Unsupported checkpoint version " + version + ": " + path);
+        }
+        int depth = map.getInt();
+        int width = map.getInt();
+        if(depth <= 0 || width <= 0 || (long) depth * width > Integer.MAX_VALUE) {
+            throw corrupt("bad field size " + depth + "x" + width, path);
+        }
+        seed = map.getLong();
+        step = map.getInt();
+        time = map.getInt();
+        if(step < 0 || time < 0 || time >= TICKS) {
+            throw corrupt("bad clock", path);
+        }
+        day = map.get() != 0;
+        int weatherOrdinal = map.get();
+        if(weatherOrdinal < -1 || weatherOrdinal >= WeatherType.values().length) {
+            throw corrupt("bad weather " + weatherOrdinal, path);
+        }
+        weather = weatherOrdinal < 0 ? null : WeatherType.values()[weatherOrdinal];
+        organismCount = map.getInt();
+        if(organismCount < 0) {
+            throw corrupt("bad organism count " + organismCount, path);
+        }
+        terrain = Terrain.read(depth, width, map);
+        parameters = version > NO_PARAMETERS_VERSION ? readParameters(map, path) : null;
+        if(map.remaining() < (long) organismCount * RECORD_BYTES) {
+            throw new IOException("Checkpoint file is truncated: " + path);
+        }
+        records = map.slice();
+        checkRecords(depth * width, version == ORGANISM_GRASS_VERSION, path);
+        if(version == ORGANISM_GRASS_VERSION) {
+            grassBlockCount = 0;
+            grassBlocks = null;
+            return;
+        }
+        map.position(map.position() + organismCount * RECORD_BYTES);
+        if(map.remaining() < 4) {
+            throw new IOException("Checkpoint file is truncated: " + path);
+        }
+        grassBlockCount = map.getInt();
+        int blockCount = Grass.blockCount(depth, width);
+        if(grassBlockCount < 0 || grassBlockCount > blockCount) {
+            throw corrupt("bad grass block count " + grassBlockCount, path);
+        }
+        if(map.remaining() < (long) grassBlockCount * GRASS_BLOCK_BYTES) {
+            throw new IOException("Checkpoint file is truncated: " + path);
+        }
+        grassBlocks = map.slice();
+        for(int i = 0; i < grassBlockCount; i++) {
+            int block = grassBlocks.getInt(i * GRASS_BLOCK_BYTES);
+            if(block < 0 || block >= blockCount) {
+                throw corrupt("bad grass block " + block, path);
+            }
+        }
+    }
+
+    /**
+     * Read the saved parameters.
+     * @param map The file, positioned at the parameters.
+     * @param path The file's path, for error messages.
+     * @return The parameters.
+     * @throws IOException If they are truncated, or do not fit this simulation.
+     */
+    private static SimulationParameters readParameters(ByteBuffer map, Path path) throws IOException
+    {
+        if(map.remaining() < 8) {
+            throw new IOException("Checkpoint file is truncated: " + path);
+        }
+        int names = map.getInt();
+        int kinds = map.getInt();
+        if(names != SimulationParameters.Name.values().length || kinds != Species.values().length) {
+            throw corrupt(names + "x" + kinds + " parameters, not " + SimulationParameters.Name.values().length
+                          + "x" + Species.values().length, path);
+        }
+        if(map.remaining() < 8L * names * kinds) {
+            throw new IOException("Checkpoint file is truncated: " + path);
+        }
+        SimulationParameters parameters = SimulationParameters.defaults();
+        for(SimulationParameters.Name name : SimulationParameters.Name.values()) {
+            for(Species species : Species.values()) {
+                try {
+                    parameters.set(species, name, map.getDouble());
+                }
+                catch(IllegalArgumentException e) {
+                    throw corrupt(e.getMessage(), path);
+                }
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Check that every organism record names a species and a cell of the field.
+     * @param cells How many cells the field has.
+     * @param organismGrass Whether grass may be saved as an organism.
+     * @param path The file's path, for error messages.
+     * @throws IOException If a record does not.
+     */
+    private void checkRecords(int cells, boolean organismGrass, Path path) throws IOException
+    {
+        Species[] species = Species.values();
+        for(int i = 0; i < organismCount; i++) {
+            int record = i * RECORD_BYTES;
+            int kind = records.get(record);
+            if(kind < 0 || kind >= species.length || (species[kind] == Species.GRASS && !organismGrass)) {
+                throw corrupt("bad species " + kind + " in record " + i, path);
+            }
+            int index = records.getInt(record + RECORD_INDEX_OFFSET);
+            if(index < 0 || index >= cells) {
+                throw corrupt("bad cell " + index + " in record " + i, path);
+            }
+        }
+    }
+
+    /**
+     * @param what What is wrong with the file.
+     * @param path The file's path.
+     * @return The exception to throw for a file that cannot be restored.
+     */
+    private static IOException corrupt(String what, Path path)
+    {
+        return new IOException("Corrupt checkpoint (" + what + "): " + path);
+    }
+
+    /**
+     * Open a checkpoint file by mapping it into memory.
+     * @param path The file.
+     * @return The checkpoint.
+     * @throws IOException If the file cannot be read or is not a checkpoint.
+     */
+    public static Checkpoint read(Path path) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if(channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Checkpoint file is too large to map: " + path);
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new Checkpoint(map, path);
+        }
+    }
+
+    /**
+     * Save a simulation to a checkpoint file.
+     * @param path The file to write; it is replaced if it exists.
+     * @param field The field the simulation runs on.
+     * @param organisms The organisms of the simulation, in the order it keeps them.
+     * @param seed The seed of the simulation.
+     * @param step The step the simulation has completed.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(Path path, Field field, Iterable<Organism> organisms, long seed, int step)
+        throws IOException
+    {
+        int count = 0;
+        for(Organism organism : organisms) {
+            if(organism.getLocation() != null) {
+                count++;
+            }
+        }
+        Terrain terrain = field.getTerrain();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(WRITE_BUFFER_BYTES,
+                                                               HEADER_BYTES + terrain.getByteCount() + PARAMETER_BYTES));
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            WeatherType weather = field.getCurrentWeather();
+            buffer.putInt(MAGIC).putInt(VERSION)
+                .putInt(field.getDepth()).putInt(field.getWidth())
+                .putLong(seed).putInt(step)
+                .putInt(field.getTime())
+                .put((byte) (field.getTimeOfDay() ? 1 : 0))
+                .put((byte) (weather == null ? -1 : weather.ordinal()))
+                .putInt(count);
+            terrain.write(buffer);
+            SimulationParameters parameters = field.getParameters();
+            buffer.putInt(SimulationParameters.Name.values().length).putInt(Species.values().length);
+            for(SimulationParameters.Name name : SimulationParameters.Name.values()) {
+                for(Species species : Species.values()) {
+                    buffer.putDouble(parameters.get(species, name));
+                }
+            }
+            for(Organism organism : organisms) {
+                Location location = organism.getLocation();
+                if(location == null) {
+                    continue;
+                }
+                if(buffer.remaining() < RECORD_BYTES) {
+                    drain(buffer, channel);
+                }
+                int index = field.getIndex(location);
+                int flags = (organism.isSick() ? SICK : 0)
+                    | (field.getObjectAt(index) == organism ? IN_FIELD : 0);
+                int foodLevel = 0;
+                if(organism instanceof Animal) {
+                    Animal animal = (Animal) organism;
+                    flags |= animal.getGender() ? GENDER : 0;
+                    foodLevel = animal.getFoodLevel();
+                }
+                buffer.put((byte) organism.getSpecies().ordinal()).put((byte) flags)
+                    .putInt(index).putInt(organism.getAge()).putInt(foodLevel);
+            }
+            Grass grass = field.getGrass();
+            int blocks = 0;
+            for(int block = 0; block < grass.getBlockCount(); block++) {
+                if(grass.getBlock(block) != null) {
+                    blocks++;
+                }
+            }
+            if(buffer.remaining() < 4) {
+                drain(buffer, channel);
+            }
+            buffer.putInt(blocks);
+            for(int block = 0; block < grass.getBlockCount(); block++) {
+                byte[] cells = grass.getBlock(block);
+                if(cells == null) {
+                    continue;
+                }
+                if(buffer.remaining() < GRASS_BLOCK_BYTES) {
+                    drain(buffer, channel);
+                }
+                buffer.putInt(block).put(cells);
+            }
+            drain(buffer, channel);
+        }
+    }
+
+    /**
+     * Write everything in a buffer to a channel and empty the buffer.
+     * @param buffer The buffer, being filled.
+     * @param channel The channel.
+     * @throws IOException If the channel cannot be written.
+     */
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException
+    {
+        buffer.flip();
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Put the saved parameters, clock, weather and organisms into a field.
+     * The field is cleared first, and must have the saved terrain's size.
+     * A file without parameters leaves the field's own.
+     * @param field The field.
+     * @param organisms The population to add the organisms to, in their saved order.
+     */
+    void restoreInto(Field field, Population organisms)
+    {
+        field.clear();
+        if(parameters != null) {
+            field.setParameters(parameters.copy());
+        }
+        field.restoreTime(time, day, weather);
+        Organism[] restored = new Organism[organismCount];
+        // Organisms that had been pushed out of their cell by another are
+        // restored first and taken out of the field again, so that the
+        // occupants, restored next, end up alone in their cells.
+        restoreRecords(field, restored, false);
+        restoreRecords(field, restored, true);
+        for(Organism organism : restored) {
+            // Version 1 grass went into the grass layer instead.
+            if(organism != null) {
+                organisms.add(organism);
+            }
+        }
+        if(grassBlocks != null) {
+            ByteBuffer in = grassBlocks.duplicate();
+            Grass grass = field.getGrass();
+            byte[] cells = new byte[Grass.BLOCK_CELLS];
+            for(int i = 0; i < grassBlockCount; i++) {
+                int block = in.getInt();
+                in.get(cells);
+                grass.restoreBlock(block, cells);
+            }
+        }
+    }
+
+    /**
+     * Restore the organisms that were, or were not, the occupants of their cells.
+     * @param field The field.
+     * @param restored The organisms, by record number; filled in as they are restored.
+     * @param occupants Whether to restore the occupants or the others.
+     */
+    private void restoreRecords(Field field, Organism[] restored, boolean occupants)
+    {
+        ByteBuffer in = records.duplicate();
+        Species[] species = Species.values();
+        OrganismPool pool = field.getPool();
+        for(int i = 0; i < organismCount; i++) {
+            int kind = in.get();
+            int flags = in.get();
+            if(((flags & IN_FIELD) != 0) != occupants) {
+                in.position(in.position() + RECORD_BYTES - RECORD_INDEX_OFFSET);
+                continue;
+            }
+            int index = in.getInt();
+            if(species[kind] == Species.GRASS) {
+                int age = in.getInt();
+                in.getInt();
+                if(occupants) {
+                    field.plantGrass(index, Math.min(age, Grass.MAX_AGE), (flags & SICK) != 0);
+                }
+                continue;
+            }
+            Organism organism = pool.obtain(species[kind], false, field, field.getLocation(index), (flags & SICK) != 0);
+            organism.setAge(in.getInt());
+            int foodLevel = in.getInt();
+            if(organism instanceof Animal) {
+                Animal animal = (Animal) organism;
+                animal.setGender((flags & GENDER) != 0);
+                animal.setFoodLevel(foodLevel);
+            }
+            if(!occupants) {
+                field.clear(index);
+            }
+            restored[i] = organism;
+        }
+    }
+
+    /**
+     * @return The saved seed.
+     */
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * @return The step the saved simulation had completed.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * @return The saved terrain, which also gives the field's size.
+     */
+    public Terrain getTerrain()
+    {
+        return terrain;
+    }
+
+    /**
+     * @return How many organisms were saved.
+     */
+    public int getOrganismCount()
+    {
+        return organismCount;
+    }
+}
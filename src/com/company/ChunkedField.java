@@ -0,0 +1,204 @@
+package com.company;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A field that only stores the parts of it that hold organisms, for very
+ * large fields that are mostly empty. The cells are grouped into square
+ * chunks, and a chunk is only allocated when an organism is first placed
+ * in it. Chunks that have emptied are given back by compact(), between
+ * steps, so the memory used follows the population rather than the size
+ * of the field.
+ *
+ * Cells keep the same indices, row * width + col, as in a Field, so the
+ * field must have fewer than 2^31 cells.
+ *
+ * A Simulator populates a ChunkedField without visiting every cell. Some
+ * costs still follow the size of the field rather than its population:
+ * the terrain, one bit per cell; one reference per chunk, scanned by
+ * compact() every step; one reference per tile of the TiledStepper; and
+ * a few bytes per block of grass, scanned at the start and end of every
+ * step. Grass itself takes one byte for every cell of each 32x32 block
+ * holding any, so grass scattered thinly costs about a kilobyte a cell.
+ * A 20000x20000 field populated at density 0.0001 runs in 128 MB of
+ * heap, of which the terrain takes 50 MB and the grass about 27 MB.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class ChunkedField extends Field
+{
+    // The length of the side of a chunk is 1 << CHUNK_SHIFT cells.
+    private static final int CHUNK_SHIFT = 4;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final int width;
+    private final int chunkCols;
+    // The chunks, row by row, or null where no chunk is allocated.
+    private final AtomicReferenceArray<Chunk> chunks;
+
+    /**
+     * Represent a field with the given terrain, as deep and wide as it,
+     * with no chunks allocated.
+     * @param terrain Which cells of the field are water.
+     */
+    public ChunkedField(Terrain terrain)
+    {
+        super(terrain, false);
+        width = terrain.getWidth();
+        chunkCols = (width + CHUNK_MASK) >> CHUNK_SHIFT;
+        int chunkRows = (terrain.getDepth() + CHUNK_MASK) >> CHUNK_SHIFT;
+        chunks = new AtomicReferenceArray<>(chunkRows * chunkCols);
+    }
+
+    /**
+     * @param index The index of a cell.
+     * @return The index of the chunk the cell is in.
+     */
+    private int chunkOf(int index)
+    {
+        return (index / width >> CHUNK_SHIFT) * chunkCols + (index % width >> CHUNK_SHIFT);
+    }
+
+    /**
+     * @param index The index of a cell.
+     * @return The position of the cell within its chunk.
+     */
+    private int offsetOf(int index)
+    {
+        return (index / width & CHUNK_MASK) << CHUNK_SHIFT | index % width & CHUNK_MASK;
+    }
+
+    /**
+     * Return the location of a cell. While the cell's chunk is allocated
+     * the same instance is returned every time.
+     * @param index The index of the cell, row * width + col.
+     * @return The location of that cell.
+     */
+    @Override
+    public Location getLocation(int index)
+    {
+        Chunk chunk = chunks.get(chunkOf(index));
+        if(chunk == null) {
+            return new Location(index / width, index % width);
+        }
+        int offset = offsetOf(index);
+        Location location = chunk.locations[offset];
+        if(location == null) {
+            // Two threads may both create it; either instance will do.
+            location = new Location(index / width, index % width);
+            chunk.locations[offset] = location;
+        }
+        return location;
+    }
+
+    @Override
+    protected int[] stencilAt(int index)
+    {
+        return stencilFor(edgesOf(index / width, index % width));
+    }
+
+    @Override
+    public Organism getObjectAt(int index)
+    {
+        Chunk chunk = chunks.get(chunkOf(index));
+        return chunk == null ? null : chunk.cells[offsetOf(index)];
+    }
+
+    @Override
+    public int getSpeciesIdAt(int index)
+    {
+        Chunk chunk = chunks.get(chunkOf(index));
+        return chunk == null ? Species.NONE : chunk.speciesIds[offsetOf(index)];
+    }
+
+    /**
+     * Put an organism in a cell, or empty it, allocating the cell's chunk
+     * if it is the first organism there.
+     * @param index The index of the cell, row * width + col.
+     * @param organism The organism, or null.
+     */
+    @Override
+    protected void setCell(int index, Organism organism)
+    {
+        int chunkIndex = chunkOf(index);
+        Chunk chunk = chunks.get(chunkIndex);
+        if(chunk == null) {
+            if(organism == null) {
+                return;
+            }
+            // Tiles stepping in parallel may share a chunk; only one allocation wins.
+            chunks.compareAndSet(chunkIndex, null, new Chunk());
+            chunk = chunks.get(chunkIndex);
+        }
+        int offset = offsetOf(index);
+        Organism occupant = chunk.cells[offset];
+        if(occupant == null && organism != null) {
+            chunk.occupied.incrementAndGet();
+        }
+        else if(occupant != null && organism == null) {
+            chunk.occupied.decrementAndGet();
+        }
+        chunk.cells[offset] = organism;
+        chunk.speciesIds[offset] = (byte) (organism == null ? Species.NONE : organism.getSpecies().getId());
+    }
+
+    @Override
+    protected void clearCells()
+    {
+        for(int i = 0; i < chunks.length(); i++) {
+            chunks.set(i, null);
+        }
+    }
+
+    /**
+     * Give back the chunks that no longer hold any organisms.
+     * Chunks are never released during a step, so that tiles stepping
+     * in parallel never see a chunk vanish from under them.
+     */
+    @Override
+    public void compact()
+    {
+        for(int i = 0; i < chunks.length(); i++) {
+            Chunk chunk = chunks.get(i);
+            if(chunk != null && chunk.occupied.get() == 0) {
+                chunks.set(i, null);
+            }
+        }
+    }
+
+    /**
+     * @return How many chunks are allocated.
+     */
+    public int getAllocatedChunkCount()
+    {
+        int count = 0;
+        for(int i = 0; i < chunks.length(); i++) {
+            if(chunks.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return How many chunks the field is divided into.
+     */
+    public int getChunkCount()
+    {
+        return chunks.length();
+    }
+
+    /**
+     * The cells of one chunk, row by row, the species in them, and how
+     * many of them are occupied.
+     */
+    private static class Chunk
+    {
+        final Organism[] cells = new Organism[CHUNK_SIZE * CHUNK_SIZE];
+        final byte[] speciesIds = new byte[CHUNK_SIZE * CHUNK_SIZE];
+        final Location[] locations = new Location[CHUNK_SIZE * CHUNK_SIZE];
+        final AtomicInteger occupied = new AtomicInteger();
+    }
+}
@@ -1,12 +1,13 @@
 package com.company;
 
-import java.awt.Color;
+import java.util.concurrent.atomic.LongAdder;
  
 /**
  * Provide a counter for a participant in the simulation.
  * This includes an identifying string and a count of how
  * many participants of this type currently exist within 
- * the simulation.
+ * the simulation, and how many of them are sick.
+ * Counts can be changed from several threads at once.
  *
  * @author Nicholas Pezzotti
  */
@@ -15,7 +16,9 @@ public class Counter
     // A name for this type of simulation participant
     private String name;
     // How many of this type exist in the simulation.
-    private int count;
+    private final LongAdder count;
+    // How many of those are sick.
+    private final LongAdder sick;
 
     /**
      * Provide a name for one of the simulation types.
@@ -24,7 +27,8 @@ public class Counter
     public Counter(String name)
     {
         this.name = name;
-        count = 0;
+        count = new LongAdder();
+        sick = new LongAdder();
     }
     
     /**
@@ -40,7 +44,15 @@ public class Counter
      */
     public int getCount()
     {
-        return count;
+        return count.intValue();
+    }
+
+    /**
+     * @return How many of this type are currently sick.
+     */
+    public int getSickCount()
+    {
+        return sick.intValue();
     }
 
     /**
@@ -48,7 +60,31 @@ public class Counter
      */
     public void increment()
     {
-        count++;
+        count.increment();
+    }
+    
+    /**
+     * Count one more participant of this type.
+     * @param isSick Whether it is sick.
+     */
+    public void increment(boolean isSick)
+    {
+        count.increment();
+        if(isSick) {
+            sick.increment();
+        }
+    }
+    
+    /**
+     * Count one participant of this type fewer.
+     * @param isSick Whether it was sick.
+     */
+    public void decrement(boolean isSick)
+    {
+        count.decrement();
+        if(isSick) {
+            sick.decrement();
+        }
     }
     
     /**
@@ -56,6 +92,7 @@ public class Counter
      */
     public void reset()
     {
-        count = 0;
+        count.reset();
+        sick.reset();
     }
 }
@@ -10,10 +10,6 @@ import java.util.ArrayList;
  * @author Nicholas Pezzoti
  */
 public class Crocodile extends Amphibian {
-    private static final int BREEDING_AGE = 15;
-    private static final int MAX_AGE = 38;
-    private static final double BREEDING_PROBABILITY = 0.30;
-    private static final int MAX_LITTER_SIZE = 2;
     private static final int MAX_FOOD = 25;
     private static final int FOOD_VALUE = 30;
     private static final Random rand = Randomizer.getRandom();
@@ -32,8 +28,17 @@ public class Crocodile extends Amphibian {
      */
     public Crocodile(boolean randomAge, Field field, Location location, boolean isSick) {
         super(rand.nextBoolean(), field, location, isSick);
+        initialise(randomAge);
+    }
+
+    /**
+     * Sets the starting age and food level of a crocodile that has just been
+     * created or recycled
+     * @param randomAge whether to spawn it as part of populating the board or as an offspring
+     */
+    protected void initialise(boolean randomAge) {
         if(randomAge) {
-            setAge(rand.nextInt(MAX_AGE));
+            setAge(rand.nextInt(getMaxAge()));
             setFoodLevel(rand.nextInt(MAX_FOOD));
         }
         else {
@@ -42,6 +47,13 @@ public class Crocodile extends Amphibian {
         }
     }
 
+    /**
+     * @return the species of the crocodile
+     */
+    public Species getSpecies() {
+        return Species.CROCODILE;
+    }
+
     /**
      * @return the food value of the crocodile
      */
@@ -58,34 +70,6 @@ public class Crocodile extends Amphibian {
         setFoodLevel(getFoodLevel() + preyFoodValue);
     }
 
-    /**
-     * @return the max age of the crocodile
-     */
-    protected int getMaxAge(){
-        return MAX_AGE;
-    }
-
-    /**
-     * @return the breeding age of the crocodile
-     */
-    public int getBreedingAge() {
-        return BREEDING_AGE;
-    }
-
-    /**
-     * @return the breeding probability of the crocodile
-     */
-    public double getBreedingProbability() {
-        return BREEDING_PROBABILITY;
-    }
-
-    /**
-     * @return the max litter size of the crocodile
-     */
-    public int getMaxLitterSize() {
-        return MAX_LITTER_SIZE;
-    }
-
     /**
      * @return the maximum food a crocodile can eat
      */
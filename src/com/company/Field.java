@@ -1,14 +1,17 @@
 package com.company;
 
-import java.util.Collections;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
 
 /**
  * Represent a rectangular grid of field positions.
- * Each position is able to store a single animal.
+ * Each position is able to store a single animal, or grass, which is
+ * kept in a layer of its own rather than as organisms.
+ * Every cell is stored up front; see ChunkedField for large, mostly
+ * empty fields.
  *
  * @author Nicholas Pezzotti
  */
@@ -16,40 +19,337 @@ public class Field
 {
     // A random number generator for providing random locations.
     private static final Random rand = Randomizer.getRandom();
+    // The most neighbours a cell can have.
+    static final int MAX_NEIGHBOURS = 8;
+    // Every ordering of n neighbours, n bytes per ordering, for n up to MAX_NEIGHBOURS.
+    private static final byte[][] ORDERINGS = new byte[MAX_NEIGHBOURS + 1][];
+    // How many orderings of n neighbours there are (n factorial).
+    private static final int[] ORDERING_COUNT = new int[MAX_NEIGHBOURS + 1];
+
+    static {
+        for(int n = 0; n <= MAX_NEIGHBOURS; n++) {
+            ORDERING_COUNT[n] = n == 0 ? 1 : ORDERING_COUNT[n - 1] * n;
+            ORDERINGS[n] = new byte[ORDERING_COUNT[n] * n];
+            byte[] ordering = new byte[n];
+            for(int i = 0; i < n; i++) {
+                ordering[i] = (byte) i;
+            }
+            addOrderings(n, ordering, 0, new int[]{0});
+        }
+    }
     
     // The depth and width of the field.
     private int depth, width;
-    // Storage for the animals.
-    private Object[][] field;
+    // Storage for the organisms, one cell per location, indexed by row * width + col.
+    // Null, like cellLocations and stencilOf, when a subclass stores the cells.
+    private Organism[] cells;
+    // The species id of the organism in each cell, or Species.NONE, so
+    // that neighbours can be looked at without touching the organisms.
+    private byte[] speciesIds;
+    // The one Location for each cell, indexed by row * width + col.
+    private final Location[] cellLocations;
+    // The index offsets of the neighbours of a cell, one stencil for
+    // each way a cell can touch the edges of the field.
+    private final int[][] stencils;
+    // Which stencil applies to each cell.
+    private final byte[] stencilOf;
+    // Which cells are water.
+    private final Terrain terrain;
+    // The grass growing in the field.
+    private final Grass grass;
     
     private boolean day = true;
     private int time = 0; // resets at 12
     private WeatherType currentWeather;
     private Weather weather;
+    // Dead organisms waiting to be recycled as newborns.
+    private final OrganismPool pool;
+    // How many organisms of each species are in the field.
+    private final FieldStats stats;
+    // How the organisms in the field age and breed.
+    private SimulationParameters parameters = SimulationParameters.defaults();
 
     /**
-     * Represent a field of the given dimensions.
+     * Represent a field of the given dimensions, with the standard terrain.
      * @param depth The depth of the field.
      * @param width The width of the field.
      */
     public Field(int depth, int width)
     {
-        this.depth = depth;
-        this.width = width;
-        field = new Object[depth][width];
+        this(Terrain.standard(depth, width));
+    }
+    
+    /**
+     * Represent a field with the given terrain, as deep and wide as it.
+     * @param terrain Which cells of the field are water.
+     */
+    public Field(Terrain terrain)
+    {
+        this(terrain, true);
+    }
+    
+    /**
+     * Represent a field with the given terrain, as deep and wide as it.
+     * @param terrain Which cells of the field are water.
+     * @param storeCells Whether to store every cell here; false for a
+     *                   subclass that stores them itself.
+     */
+    protected Field(Terrain terrain, boolean storeCells)
+    {
+        this.terrain = terrain;
+        this.depth = terrain.getDepth();
+        this.width = terrain.getWidth();
+        stencils = new int[16][];
+        for(int edges = 0; edges < stencils.length; edges++) {
+            stencils[edges] = buildStencil(edges);
+        }
+        if(storeCells) {
+            cells = new Organism[depth * width];
+            speciesIds = new byte[depth * width];
+            cellLocations = new Location[depth * width];
+            stencilOf = new byte[depth * width];
+            for(int row = 0; row < depth; row++) {
+                for(int col = 0; col < width; col++) {
+                    cellLocations[row * width + col] = new Location(row, col);
+                    stencilOf[row * width + col] = (byte) edgesOf(row, col);
+                }
+            }
+        }
+        else {
+            cellLocations = null;
+            stencilOf = null;
+        }
         weather = new Weather(); 
+        pool = new OrganismPool();
+        grass = new Grass(depth, width);
+        stats = new FieldStats(grass);
     }
     
     /**
-     * Empty the field.
+     * Describe which edges of the field a cell lies on.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return A bit each for the top, bottom, left and right edges.
      */
-    public void clear()
+    protected int edgesOf(int row, int col)
+    {
+        return (row == 0 ? 1 : 0) | (row == depth - 1 ? 2 : 0)
+            | (col == 0 ? 4 : 0) | (col == width - 1 ? 8 : 0);
+    }
+    
+    /**
+     * Work out the index offsets of the neighbours of a cell that lies on
+     * the given edges, leaving out those that would fall off the field.
+     * @param edges The edges of the field the cell lies on, as from edgesOf.
+     * @return The offsets to add to the cell's index.
+     */
+    private int[] buildStencil(int edges)
+    {
+        int[] offsets = new int[MAX_NEIGHBOURS];
+        int count = 0;
+        for(int roffset = -1; roffset <= 1; roffset++) {
+            if((roffset < 0 && (edges & 1) != 0) || (roffset > 0 && (edges & 2) != 0)) {
+                continue;
+            }
+            for(int coffset = -1; coffset <= 1; coffset++) {
+                if((coffset < 0 && (edges & 4) != 0) || (coffset > 0 && (edges & 8) != 0)) {
+                    continue;
+                }
+                if(roffset != 0 || coffset != 0) {
+                    offsets[count++] = roffset * width + coffset;
+                }
+            }
+        }
+        int[] stencil = new int[count];
+        System.arraycopy(offsets, 0, stencil, 0, count);
+        return stencil;
+    }
+    
+    /**
+     * Append every ordering of the tail of an ordering, starting from position from,
+     * to the table of orderings of its length.
+     * @param n The length of the orderings.
+     * @param ordering The ordering being built; it is restored before returning.
+     * @param from The first position still to be permuted.
+     * @param written How many orderings have been written so far.
+     */
+    private static void addOrderings(int n, byte[] ordering, int from, int[] written)
+    {
+        if(from >= n - 1) {
+            System.arraycopy(ordering, 0, ORDERINGS[n], written[0] * n, n);
+            written[0]++;
+            return;
+        }
+        for(int i = from; i < n; i++) {
+            byte swap = ordering[from];
+            ordering[from] = ordering[i];
+            ordering[i] = swap;
+            addOrderings(n, ordering, from + 1, written);
+            ordering[i] = ordering[from];
+            ordering[from] = swap;
+        }
+    }
+    
+    /**
+     * Return the index of a location, row * width + col.
+     * @param location The location.
+     * @return The index of its cell.
+     */
+    public int getIndex(Location location)
+    {
+        return location.getRow() * width + location.getCol();
+    }
+    
+    /**
+     * Return the location of a cell.
+     * @param index The index of the cell, row * width + col.
+     * @return The shared location of that cell.
+     */
+    public Location getLocation(int index)
     {
-        for(int row = 0; row < depth; row++) {
-            for(int col = 0; col < width; col++) {
-                field[row][col] = null;
+        return cellLocations[index];
+    }
+    
+    /**
+     * @param index The index of a cell.
+     * @return The index offsets of the cell's neighbours within the field.
+     */
+    protected int[] stencilAt(int index)
+    {
+        return stencils[stencilOf[index]];
+    }
+    
+    /**
+     * @param edges The edges of the field a cell lies on, as from edgesOf.
+     * @return The index offsets of the neighbours of such a cell.
+     */
+    protected int[] stencilFor(int edges)
+    {
+        return stencils[edges];
+    }
+    
+    /**
+     * @param index The index of a cell.
+     * @return How many neighbours the cell has within the field.
+     */
+    public int neighbourCount(int index)
+    {
+        return stencilAt(index).length;
+    }
+    
+    /**
+     * Choose a random order in which to visit the neighbours of a cell.
+     * Visit them with neighbour(index, order, k) for k from 0 to
+     * neighbourCount(index) - 1. Nothing is allocated.
+     * @param index The index of the cell.
+     * @return The chosen order.
+     */
+    public int shuffleNeighbours(int index)
+    {
+        return rand.nextInt(ORDERING_COUNT[stencilAt(index).length]);
+    }
+    
+    /**
+     * Return one of the neighbours of a cell.
+     * @param index The index of the cell.
+     * @param order An order returned by shuffleNeighbours for this cell.
+     * @param k Which neighbour to return, from 0 to neighbourCount(index) - 1.
+     * @return The index of the k-th neighbour in that order.
+     */
+    public int neighbour(int index, int order, int k)
+    {
+        int[] stencil = stencilAt(index);
+        int n = stencil.length;
+        return index + stencil[ORDERINGS[n][order * n + k]];
+    }
+    
+    /**
+     * Pick a free neighbour of a cell at random, without allocating.
+     * @param index The index of the cell.
+     * @return The index of the free neighbour, or -1 if all are occupied.
+     */
+    public int freeAdjacentIndex(int index)
+    {
+        int count = neighbourCount(index);
+        int order = shuffleNeighbours(index);
+        for(int k = 0; k < count; k++) {
+            int next = neighbour(index, order, k);
+            if(isFree(next)) {
+                return next;
             }
         }
+        return -1;
+    }
+    
+    /**
+     * Return the location of a cell. The same instance is returned every
+     * time, so locations can be compared and kept without allocating.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The shared location of that cell.
+     */
+    public Location getLocation(int row, int col)
+    {
+        return getLocation(row * width + col);
+    }
+    
+    /**
+     * Empty the field.
+     */
+    public void clear()
+    {
+        clearCells();
+        grass.clear();
+        stats.reset();
+    }
+    
+    /**
+     * Empty every cell, without counting.
+     */
+    protected void clearCells()
+    {
+        Arrays.fill(cells, null);
+        Arrays.fill(speciesIds, (byte) Species.NONE);
+    }
+    
+    /**
+     * Put an organism in a cell, or empty it, without counting.
+     * @param index The index of the cell, row * width + col.
+     * @param organism The organism, or null.
+     */
+    protected void setCell(int index, Organism organism)
+    {
+        cells[index] = organism;
+        speciesIds[index] = (byte) (organism == null ? Species.NONE : organism.getSpecies().getId());
+    }
+    
+    /**
+     * Give back any storage that empty parts of the field no longer need.
+     * Called between steps, never while organisms are acting.
+     */
+    public void compact()
+    {
+    }
+    
+    /**
+     * @param index The index of a cell, row * width + col.
+     * @return Whether the cell holds neither an organism nor grass.
+     */
+    public boolean isFree(int index)
+    {
+        return getObjectAt(index) == null && !grass.has(index);
+    }
+    
+    /**
+     * Grow grass in a cell, in place of whatever it held.
+     * @param index The index of the cell, row * width + col.
+     * @param age The age of the grass.
+     * @param sick Whether it is sick.
+     */
+    public void plantGrass(int index, int age, boolean sick)
+    {
+        clear(index);
+        grass.plant(index, age, sick);
     }
     
     /**
@@ -58,7 +358,20 @@ public class Field
      */
     public void clear(Location location)
     {
-        field[location.getRow()][location.getCol()] = null;
+        clear(getIndex(location));
+    }
+    
+    /**
+     * Clear the given cell.
+     * @param index The index of the cell, row * width + col.
+     */
+    public void clear(int index)
+    {
+        Organism occupant = getObjectAt(index);
+        if(occupant != null) {
+            setCell(index, null);
+            stats.organismRemoved(occupant);
+        }
     }
     
     /**
@@ -71,7 +384,7 @@ public class Field
      */
     public void place(Organism animal, int row, int col)
     {
-        place(animal, new Location(row, col));
+        place(animal, getLocation(row, col));
     }
     
     /**
@@ -84,10 +397,29 @@ public class Field
     public void place(Organism organism, Location location)
     {
         
-        if (organism.isCorrectTerritory(location)) {
-            field[location.getRow()][location.getCol()] = organism;
+        place(organism, getIndex(location));
+    }
+    
+    /**
+     * Place an organism in the given cell.
+     * If there is already an organism or grass in the cell it will
+     * be lost.
+     * @param organism The organism to be placed.
+     * @param index The index of the cell, row * width + col.
+     */
+    public void place(Organism organism, int index)
+    {
+        if (organism.isCorrectTerritory(getLocation(index))) {
+            Organism occupant = getObjectAt(index);
+            if (occupant != organism) {
+                if (occupant != null) {
+                    stats.organismRemoved(occupant);
+                }
+                setCell(index, organism);
+                stats.organismAdded(organism);
+                grass.remove(index);
+            }
         }
-        
     }
     
     /**
@@ -95,9 +427,9 @@ public class Field
      * @param location Where in the field.
      * @return The animal at the given location, or null if there is none.
      */
-    public Object getObjectAt(Location location)
+    public Organism getObjectAt(Location location)
     {
-        return getObjectAt(location.getRow(), location.getCol());
+        return getObjectAt(getIndex(location));
     }
     
     /**
@@ -106,9 +438,30 @@ public class Field
      * @param col The desired column.
      * @return The animal at the given location, or null if there is none.
      */
-    public Object getObjectAt(int row, int col)
+    public Organism getObjectAt(int row, int col)
+    {
+        return getObjectAt(row * width + col);
+    }
+    
+    /**
+     * Return the organism in the given cell, if any.
+     * @param index The index of the cell, row * width + col.
+     * @return The organism in the cell, or null if there is none.
+     */
+    public Organism getObjectAt(int index)
+    {
+        return cells[index];
+    }
+    
+    /**
+     * Return the species of the organism in the given cell, without
+     * touching the organism.
+     * @param index The index of the cell, row * width + col.
+     * @return The id of its species, or Species.NONE if the cell is empty.
+     */
+    public int getSpeciesIdAt(int index)
     {
-        return field[row][col];
+        return speciesIds[index];
     }
     
     /**
@@ -135,7 +488,7 @@ public class Field
         List<Location> free = new LinkedList<>();
         List<Location> adjacent = adjacentLocations(location);
         for(Location next : adjacent) {
-            if(getObjectAt(next) == null) {
+            if(isFree(getIndex(next))) {
                 free.add(next);
             }
         }
@@ -152,10 +505,9 @@ public class Field
      */
     public Location freeAdjacentLocation(Location location)
     {
-        // The available free ones.
-        List<Location> free = getFreeAdjacentLocations(location);
-        if(free.size() > 0) {
-            return free.get(0);
+        int free = freeAdjacentIndex(getIndex(location));
+        if(free >= 0) {
+            return getLocation(free);
         }
         else {
             return null;
@@ -173,44 +525,37 @@ public class Field
     {
         assert location != null : "Null location passed to adjacentLocations";
         // The list of locations to be returned.
-        List<Location> locations = new LinkedList<>();
+        List<Location> locations = new ArrayList<>(MAX_NEIGHBOURS);
         if(location != null) {
-            int row = location.getRow();
-            int col = location.getCol();
-            for(int roffset = -1; roffset <= 1; roffset++) {
-                int nextRow = row + roffset;
-                if(nextRow >= 0 && nextRow < depth) {
-                    for(int coffset = -1; coffset <= 1; coffset++) {
-                        int nextCol = col + coffset;
-                        // Exclude invalid locations and the original location.
-                        if(nextCol >= 0 && nextCol < width && (roffset != 0 || coffset != 0)) {
-                            locations.add(new Location(nextRow, nextCol));
-                        }
-                    }
-                }
+            // Several other methods rely on the list being in a random order.
+            int index = getIndex(location);
+            int count = neighbourCount(index);
+            int order = shuffleNeighbours(index);
+            for(int k = 0; k < count; k++) {
+                locations.add(getLocation(neighbour(index, order, k)));
             }
-            
-            // Shuffle the list. Several other methods rely on the list
-            // being in a random order.
-            Collections.shuffle(locations, rand);
         }
         return locations;
     }
 
     /**
      * The following method determines which cells are destined for water and which for land.
-     * It's essential to the working of the simulation, it establishes an imaginary
-     * line, splitting the region of the map that is water and that which is land. It can easily be changed
-     * to reshape the distribution.
+     * It's essential to the working of the simulation. The shape is fixed by the field's
+     * Terrain when the field is built, see Terrain.standard for the default one.
      * @param row The row of the cell you want to check.
      * @param col The column of the cell you want to check.
      * @return True if the inspected cell is water.
      */
     public boolean isWater(int row, int col) {
-        if (row*col < getDepth()*10) {
-            return true; 
-        }
-        return false; 
+        return terrain.isWater(row * width + col);
+    }
+
+    /**
+     * @param index The index of the cell, row * width + col.
+     * @return True if the cell is water.
+     */
+    public boolean isWater(int index) {
+        return terrain.isWater(index);
     }
 
     /**
@@ -219,7 +564,7 @@ public class Field
      * @return True if the location is null or if it's water.
      */
     public boolean isWater(Location location) {
-        return location == null || isWater(location.getRow(), location.getCol());
+        return location == null || terrain.isWater(location.getRow() * width + location.getCol());
     }
 
 
@@ -236,6 +581,36 @@ public class Field
         currentWeather = weather.nextWeather();
     }
 
+    /**
+     * Turn the clock back to the start of the first day, with fresh weather.
+     */
+    public void resetTime() {
+        time = 0;
+        day = true;
+        weather = new Weather();
+        currentWeather = null;
+    }
+
+    /**
+     * Set the clock and the weather, as when restoring a saved simulation.
+     * @param time The time within the current day or night, 0 to 11.
+     * @param day Whether it is day.
+     * @param currentWeather The weather of the last step, or null if no step has been taken.
+     */
+    public void restoreTime(int time, boolean day, WeatherType currentWeather) {
+        this.time = time;
+        this.day = day;
+        this.currentWeather = currentWeather;
+        weather = new Weather(currentWeather == null ? WeatherType.SUNNY : currentWeather);
+    }
+
+    /**
+     * @return The time within the current day or night, 0 to 11.
+     */
+    public int getTime() {
+        return time;
+    }
+
     /**
      * @return The current weatherType.
      */
@@ -261,7 +636,7 @@ public class Field
      * @return True if it's "raining".
      */
     public boolean isRaining() {
-        return getCurrentWeather().equals(WeatherType.RAIN);
+        return getCurrentWeather() == WeatherType.RAIN;
     }
 
     /**
@@ -281,6 +656,57 @@ public class Field
         day = !day; 
     }
     
+    /**
+     * @return The population counts of this field, kept up to date as
+     * organisms are placed and cleared.
+     */
+    public FieldStats getStats()
+    {
+        return stats;
+    }
+    
+    /**
+     * @return The parameters the organisms in this field age and breed by.
+     */
+    public SimulationParameters getParameters()
+    {
+        return parameters;
+    }
+    
+    /**
+     * Change the parameters the organisms in this field age and breed by.
+     * Not to be called while a step is running.
+     * @param parameters The new parameters.
+     */
+    public void setParameters(SimulationParameters parameters)
+    {
+        this.parameters = parameters;
+    }
+    
+    /**
+     * @return The grass growing in this field.
+     */
+    public Grass getGrass()
+    {
+        return grass;
+    }
+    
+    /**
+     * @return Which cells of this field are water.
+     */
+    public Terrain getTerrain()
+    {
+        return terrain;
+    }
+    
+    /**
+     * @return The pool that organisms living in this field are recycled through.
+     */
+    public OrganismPool getPool()
+    {
+        return pool;
+    }
+    
     /**
      * Return the depth of the field.
      * @return The depth of the field.
@@ -298,4 +724,14 @@ public class Field
     {
         return width;
     }
+    
+    /**
+     * Return the number of cells in the field, depth * width.
+     * Cell indices run from 0 to one less than this.
+     * @return The number of cells in the field.
+     */
+    public int getCellCount()
+    {
+        return depth * width;
+    }
 }
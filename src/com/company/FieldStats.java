@@ -1,45 +1,39 @@
 package com.company;
 
-import java.awt.Color;
-import java.util.HashMap;
-
 /**
  * This class collects and provides some statistical data on the state 
- * of a field. It is flexible: it will create and maintain a counter 
- * for any class of object that is found within the field.
+ * of a field. The counts are kept up to date as organisms are placed in
+ * and cleared from the field, so reading them never scans the field.
  *
  * @author Nicholas Pezzotti
  */
 public class FieldStats
 {
-    // Counters for each type of entity (fox, rabbit, etc.) in the simulation.
-    private HashMap<Class, Counter> counters;
-    // Whether the counters are currently up to date.
-    private boolean countsValid;
+    // Counters for each species in the simulation, indexed by species ordinal.
+    private final Counter[] counters;
  
     /**
      * Construct a FieldStats object.
+     * @param grass The field's grass, which keeps its own count.
      */
-    public FieldStats()
+    public FieldStats(Grass grass)
     {
-        // Set up a collection for counters for each type of animal that
-        // we might find
-        counters = new HashMap<>();
-        countsValid = true;
+        Species[] species = Species.values();
+        counters = new Counter[species.length];
+        for(Species s : species) {
+            counters[s.ordinal()] = new Counter(s.getOrganismClass().getName());
+        }
+        counters[Species.GRASS.ordinal()] = grass.getCounter();
     }
 
     /**
      * Get details of what is in the field.
      * @return A string describing what is in the field.
      */
-    public String getPopulationDetails(Field field)
+    public String getPopulationDetails()
     {
-        StringBuffer buffer = new StringBuffer();
-        if(!countsValid) {
-            generateCounts(field);
-        }
-        for(Class key : counters.keySet()) {
-            Counter info = counters.get(key);
+        StringBuilder buffer = new StringBuilder();
+        for(Counter info : counters) {
             buffer.append(info.getName());
             buffer.append(": ");
             buffer.append(info.getCount());
@@ -49,40 +43,49 @@ public class FieldStats
     }
     
     /**
-     * Invalidate the current set of statistics; reset all 
-     * counts to zero.
+     * Reset all counts to zero, as when the field is emptied.
      */
     public void reset()
     {
-        countsValid = false;
-        for(Class key : counters.keySet()) {
-            Counter count = counters.get(key);
+        for(Counter count : counters) {
             count.reset();
         }
     }
 
     /**
-     * Increment the count for one class of animal.
-     * @param animalClass The class of animal to increment.
+     * Count an organism that has been placed in the field.
+     * @param organism The organism.
      */
-    public void incrementCount(Class animalClass)
+    public void organismAdded(Organism organism)
     {
-        Counter count = counters.get(animalClass);
-        if(count == null) {
-            // We do not have a counter for this species yet.
-            // Create one.
-            count = new Counter(animalClass.getName());
-            counters.put(animalClass, count);
-        }
-        count.increment();
+        counters[organism.getSpecies().ordinal()].increment(organism.isSick());
+    }
+
+    /**
+     * Stop counting an organism that has been cleared from the field.
+     * @param organism The organism.
+     */
+    public void organismRemoved(Organism organism)
+    {
+        counters[organism.getSpecies().ordinal()].decrement(organism.isSick());
+    }
+
+    /**
+     * @param species A species.
+     * @return How many organisms of that species are in the field.
+     */
+    public int getCount(Species species)
+    {
+        return counters[species.ordinal()].getCount();
     }
 
     /**
-     * Indicate that an animal count has been completed.
+     * @param species A species.
+     * @return How many of them are sick.
      */
-    public void countFinished()
+    public int getSickCount(Species species)
     {
-        countsValid = true;
+        return counters[species.ordinal()].getSickCount();
     }
 
     /**
@@ -90,40 +93,15 @@ public class FieldStats
      * I.e., should it continue to run.
      * @return true If there is more than one species alive.
      */
-    public boolean isViable(Field field)
+    public boolean isViable()
     {
         // How many counts are non-zero.
         int nonZero = 0;
-        if(!countsValid) {
-            generateCounts(field);
-        }
-        for(Class key : counters.keySet()) {
-            Counter info = counters.get(key);
+        for(Counter info : counters) {
             if(info.getCount() > 0) {
                 nonZero++;
             }
         }
         return nonZero > 1;
     }
-    
-    /**
-     * Generate counts of the number of foxes and rabbits.
-     * These are not kept up to date as foxes and rabbits
-     * are placed in the field, but only when a request
-     * is made for the information.
-     * @param field The field to generate the stats for.
-     */
-    private void generateCounts(Field field)
-    {
-        reset();
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                Object animal = field.getObjectAt(row, col);
-                if(animal != null) {
-                    incrementCount(animal.getClass());
-                }
-            }
-        }
-        countsValid = true;
-    }
 }
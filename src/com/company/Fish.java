@@ -10,10 +10,6 @@ import java.util.Random;
  * @version 19/02/2018
  */
 public class Fish extends WaterAnimal {
-    private static final int BREEDING_AGE = 3;
-    private static final int MAX_AGE = 10;
-    private static final double BREEDING_PROBABILITY = 0.2;
-    private static final int MAX_LITTER_SIZE = 10;
     private static final int MAX_FOOD = 1;
     private static final int FOOD_VALUE = 1;
     private static final Random rand = Randomizer.getRandom();
@@ -34,8 +30,17 @@ public class Fish extends WaterAnimal {
      */
     public Fish(boolean randomAge, Field field, Location location, boolean isSick) {
         super(rand.nextBoolean(), field, location, isSick);
+        initialise(randomAge);
+    }
+
+    /**
+     * Sets the starting age and food level of a fish that has just been
+     * created or recycled
+     * @param randomAge whether to spawn it as part of populating the board or as an offspring
+     */
+    protected void initialise(boolean randomAge) {
         if(randomAge) {
-            setAge(rand.nextInt(MAX_AGE));
+            setAge(rand.nextInt(getMaxAge()));
             setFoodLevel(Integer.MAX_VALUE);
         } else {
             setAge(0);
@@ -43,6 +48,13 @@ public class Fish extends WaterAnimal {
         }
     }
 
+    /**
+     * @return the species of the fish
+     */
+    public Species getSpecies() {
+        return Species.FISH;
+    }
+
     /**
      * @return the food value of the fish
      */
@@ -59,34 +71,6 @@ public class Fish extends WaterAnimal {
         setFoodLevel(getFoodLevel() + preyFoodValue);
     }
 
-    /**
-     * @return the max age of the fish
-     */
-    protected int getMaxAge(){
-        return MAX_AGE;
-    }
-
-    /**
-     * @return the breeding age of the fish
-     */
-    public int getBreedingAge() {
-        return BREEDING_AGE;
-    }
-
-    /**
-     * @return the breeding probability of the fish
-     */
-    public double getBreedingProbability() {
-        return BREEDING_PROBABILITY;
-    }
-
-    /**
-     * @return the max litter size of the fish
-     */
-    public int getMaxLitterSize() {
-        return MAX_LITTER_SIZE;
-    }
-
     /**
      * @return the maximum food a fish can eat
      */
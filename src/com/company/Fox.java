@@ -10,10 +10,6 @@ import java.util.Random;
  * @version 19/02/2018
  */
 public class Fox extends GroundAnimal {
-    private static final int BREEDING_AGE = 8;
-    private static final int MAX_AGE = 37;
-    private static final double BREEDING_PROBABILITY = 0.350;
-    private static final int MAX_LITTER_SIZE = 2;
     private static final int FOOD_VALUE = 30;
     private static final Random rand = Randomizer.getRandom();
     private static final int MAX_FOOD = 17;
@@ -32,9 +28,17 @@ public class Fox extends GroundAnimal {
      */
     public Fox(boolean randomAge, Field field, Location location, boolean isSick) {
         super(rand.nextBoolean(), field, location, isSick);
+        initialise(randomAge);
+    }
 
+    /**
+     * Sets the starting age and food level of a fox that has just been
+     * created or recycled
+     * @param randomAge whether to spawn it as part of populating the board or as an offspring
+     */
+    protected void initialise(boolean randomAge) {
         if(randomAge) {
-            setAge(rand.nextInt(MAX_AGE));
+            setAge(rand.nextInt(getMaxAge()));
             setFoodLevel(rand.nextInt(MAX_FOOD));
         }
         else {
@@ -43,6 +47,13 @@ public class Fox extends GroundAnimal {
         }
     }
 
+    /**
+     * @return the species of the fox
+     */
+    public Species getSpecies() {
+        return Species.FOX;
+    }
+
     /**
      * @return the food value of the fox
      */
@@ -59,34 +70,6 @@ public class Fox extends GroundAnimal {
         setFoodLevel(getFoodLevel() + preyFoodValue);
     }
 
-    /**
-     * @return the max age of the fox
-     */
-    protected int getMaxAge(){
-        return MAX_AGE;
-    }
-
-    /**
-     * @return the breeding age of the fox
-     */
-    public int getBreedingAge() {
-        return BREEDING_AGE;
-    }
-
-    /**
-     * @return the breeding probability of the fox
-     */
-    public double getBreedingProbability() {
-        return BREEDING_PROBABILITY;
-    }
-
-    /**
-     * @return the max litter size of the fox
-     */
-    public int getMaxLitterSize() {
-        return MAX_LITTER_SIZE;
-    }
-
     /**
      * @return the maximum food a fox can eat
      */
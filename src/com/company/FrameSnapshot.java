@@ -0,0 +1,130 @@
+package com.company;
+
+/**
+ * An immutable picture of the field at the end of one step, compact
+ * enough to be taken after every step and handed from the simulation
+ * thread to the Swing thread for drawing. Every cell is stored as a
+ * one-byte code.
+ *
+ * @author Nicholas Pezzotti
+ */
+public final class FrameSnapshot
+{
+    // The code of an empty land cell.
+    public static final byte EMPTY = 0;
+    // The code of an empty water cell.
+    public static final byte WATER = 1;
+    // How many codes there are.
+    public static final int CODE_COUNT = 2 + Species.values().length * 2;
+
+    private final int step;
+    private final String timeOfDay;
+    private final WeatherType weather;
+    private final String population;
+    private final int depth, width;
+    // The code of every cell, indexed by row * width + col.
+    private final byte[] cells;
+
+    private FrameSnapshot(int step, Field field, byte[] cells)
+    {
+        this.step = step;
+        this.timeOfDay = field.getTimeOfDayString();
+        this.weather = field.getCurrentWeather();
+        this.population = field.getStats().getPopulationDetails();
+        this.depth = field.getDepth();
+        this.width = field.getWidth();
+        this.cells = cells;
+    }
+
+    /**
+     * Take a picture of the field.
+     * @param step The step that has just completed.
+     * @param field The field.
+     * @return The snapshot.
+     */
+    public static FrameSnapshot capture(int step, Field field)
+    {
+        byte[] cells = new byte[field.getCellCount()];
+        Grass grass = field.getGrass();
+        for(int index = 0; index < cells.length; index++) {
+            Organism organism = field.getObjectAt(index);
+            if(organism != null) {
+                cells[index] = codeOf(organism.getSpecies(), organism.isSick());
+            }
+            else if(grass.has(index)) {
+                cells[index] = codeOf(Species.GRASS, grass.isSick(index));
+            }
+            else if(field.isWater(index)) {
+                cells[index] = WATER;
+            }
+        }
+        return new FrameSnapshot(step, field, cells);
+    }
+
+    /**
+     * @param species A species.
+     * @param isSick Whether the organism is sick.
+     * @return The code of a cell holding such an organism.
+     */
+    public static byte codeOf(Species species, boolean isSick)
+    {
+        return (byte) (2 + species.ordinal() * 2 + (isSick ? 1 : 0));
+    }
+
+    /**
+     * @return The step the snapshot was taken after.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * @return "Day" or "Night".
+     */
+    public String getTimeOfDay()
+    {
+        return timeOfDay;
+    }
+
+    /**
+     * @return The weather during the step.
+     */
+    public WeatherType getWeather()
+    {
+        return weather;
+    }
+
+    /**
+     * @return A description of the population.
+     */
+    public String getPopulation()
+    {
+        return population;
+    }
+
+    /**
+     * @return The depth of the field.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * @return The width of the field.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * @param index The index of a cell, row * width + col.
+     * @return The code of the cell.
+     */
+    public byte getCode(int index)
+    {
+        return cells[index];
+    }
+}
@@ -1,88 +1,415 @@
 package com.company;
 
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
- * A simple model of grass
- * grass is a plant
+ * The grass of a field, kept as a layer of one byte per cell rather than
+ * as organisms. A cell's byte holds the age of its grass plus one, or 0
+ * if it has none, with flags for sick grass and grass born this step.
+ * The field is cut into square blocks, allocated when grass first grows
+ * in them and given back once they are bare, so a field that is mostly
+ * bare costs little.
  *
- * @author Nicholas Pezzoti
- * @version 19/02/2018
+ * Every step the grass ages, dies of old age, and in the rain spreads to
+ * free neighbouring land, all in bulk passes over the blocks. The passes
+ * run in four phases, one per colour of a checkerboard of blocks, like
+ * the tiles of a TiledStepper: grass only spreads to the cells next to
+ * it, so blocks of one colour can be processed at the same time.
+ * Rabbits eat the grass straight out of the layer.
+ *
+ * @author Nicholas Pezzotti
  */
-public class Grass extends Plant {
+public class Grass
+{
+    // How much food eating grass gives.
+    public static final int FOOD_VALUE = 6;
+    // The oldest grass can be, so that its age fits in its byte.
+    public static final int MAX_AGE = 62;
+    // The chance that new grass is born sick.
+    private static final double SICK_MUTATION_PROBABILITY = 0.02;
+    // The id of the random stream of a cell's grass is this plus the cell's index.
+    private static final long STREAM_OFFSET = 1L << 32;
+
+    // The bits of a cell's byte.
+    private static final int AGE_MASK = 0x3f;
+    private static final int SICK = 0x40;
+    private static final int BORN = 0x80;
+
+    // The length of the side of a block is 1 << BLOCK_SHIFT cells.
+    private static final int BLOCK_SHIFT = 5;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+    // How many cells a block has.
+    public static final int BLOCK_CELLS = BLOCK_SIZE * BLOCK_SIZE;
 
-    private static final int BREEDING_AGE = 1;
-    private static final int MAX_AGE = 7;
-    private static final double BREEDING_PROBABILITY = 0.2;
-    private static final int MAX_LITTER_SIZE = 6;
-    private static final int FOOD_VALUE = 6;
     private static final Random rand = Randomizer.getRandom();
-    private static final boolean ACTIVE_AT_NIGHT = true;
-    //equivalent to a boolean indicating it cannot get sick
-    private static final double IMMUNE_TO_DISEASE = 1;
-
-    /**
-     * Creates an instance of Grass assigning it a field, location, random age (if it
-     * is spawned as part of the generate method in Simulator) and whether it is sick.
-     * @param randomAge whether to spawn it as part of populating the board or as an offspring
-     * @param field the field the simulation runs on
-     * @param location the location of the grass in the field
-     * @param isSick whether the grass is sick or not
-     */
-    public Grass(boolean randomAge, Field field, Location location, boolean isSick) {
-        super(field, location, isSick);
-        setAge(0);
-        if(randomAge) {
-            setAge(rand.nextInt(MAX_AGE));
+
+    private final int depth, width;
+    private final int blockRows, blockCols;
+    // The cells of each block, row by row, or null where there is no grass.
+    private final AtomicReferenceArray<byte[]> blocks;
+    // How much grass each block holds.
+    private final AtomicIntegerArray grassIn;
+    // Which blocks have had grass born in them this step.
+    private final boolean[] bornIn;
+    // How much grass there is, and how much of it is sick.
+    private final Counter counter;
+
+    // The allocated blocks of each colour, gathered at the start of a step.
+    private final int[][] blocksOfColour = new int[4][16];
+    private final int[] blocksOfColourCount = new int[4];
+    // The step being run and the conditions it is run in.
+    private Field field;
+    private long seed;
+    private int step;
+    private boolean raining;
+    private int ageing;
+    private int maxAge, breedingAge, maxLitterSize;
+    private double breedingProbability;
+
+    /**
+     * Create a field's worth of bare ground.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public Grass(int depth, int width)
+    {
+        this.depth = depth;
+        this.width = width;
+        blockRows = (depth + BLOCK_MASK) >> BLOCK_SHIFT;
+        blockCols = (width + BLOCK_MASK) >> BLOCK_SHIFT;
+        blocks = new AtomicReferenceArray<>(blockRows * blockCols);
+        grassIn = new AtomicIntegerArray(blockRows * blockCols);
+        bornIn = new boolean[blockRows * blockCols];
+        counter = new Counter(Species.GRASS.getOrganismClass().getName());
+    }
+
+    /**
+     * @param index The index of a cell.
+     * @return The index of the block the cell is in.
+     */
+    private int blockOf(int index)
+    {
+        return (index / width >> BLOCK_SHIFT) * blockCols + (index % width >> BLOCK_SHIFT);
+    }
+
+    /**
+     * @param index The index of a cell.
+     * @return The position of the cell within its block.
+     */
+    private int offsetOf(int index)
+    {
+        return (index / width & BLOCK_MASK) << BLOCK_SHIFT | index % width & BLOCK_MASK;
+    }
+
+    /**
+     * @param index The index of a cell.
+     * @return The cell's byte, or 0 if it has no grass.
+     */
+    private int cell(int index)
+    {
+        byte[] block = blocks.get(blockOf(index));
+        return block == null ? 0 : block[offsetOf(index)] & 0xff;
+    }
+
+    /**
+     * @param index The index of a cell, row * width + col.
+     * @return Whether the cell has grass.
+     */
+    public boolean has(int index)
+    {
+        return cell(index) != 0;
+    }
+
+    /**
+     * @param index The index of a cell with grass.
+     * @return Whether its grass is sick.
+     */
+    public boolean isSick(int index)
+    {
+        return (cell(index) & SICK) != 0;
+    }
+
+    /**
+     * @param index The index of a cell with grass.
+     * @return The age of its grass.
+     */
+    public int getAge(int index)
+    {
+        return (cell(index) & AGE_MASK) - 1;
+    }
+
+    /**
+     * Grow grass in a cell, replacing any already there.
+     * @param index The index of the cell, row * width + col.
+     * @param age The age of the grass, at most MAX_AGE.
+     * @param sick Whether it is sick.
+     */
+    public void plant(int index, int age, boolean sick)
+    {
+        remove(index);
+        set(blockOf(index), offsetOf(index), age, sick, false);
+    }
+
+    /**
+     * Grow grass in an empty cell of a block, allocating the block if needed.
+     * @param blockIndex The index of the block.
+     * @param offset The position of the cell within the block.
+     * @param age The age of the grass.
+     * @param sick Whether it is sick.
+     * @param born Whether it is born this step, and so sits the rest of it out.
+     */
+    private void set(int blockIndex, int offset, int age, boolean sick, boolean born)
+    {
+        byte[] block = blocks.get(blockIndex);
+        if(block == null) {
+            // Blocks spreading in parallel may both grow into a bare block; one allocation wins.
+            blocks.compareAndSet(blockIndex, null, new byte[BLOCK_CELLS]);
+            block = blocks.get(blockIndex);
+        }
+        block[offset] = (byte) ((age + 1) | (sick ? SICK : 0) | (born ? BORN : 0));
+        if(born) {
+            bornIn[blockIndex] = true;
         }
+        grassIn.incrementAndGet(blockIndex);
+        counter.increment(sick);
     }
 
     /**
-     * @return the food value of the rabbit
+     * Take away any grass in a cell.
+     * @param index The index of the cell, row * width + col.
+     * @return Whether there was grass.
      */
-    protected int getFoodValue() {
-        return FOOD_VALUE;
+    public boolean remove(int index)
+    {
+        int blockIndex = blockOf(index);
+        byte[] block = blocks.get(blockIndex);
+        if(block == null) {
+            return false;
+        }
+        int offset = offsetOf(index);
+        int value = block[offset];
+        if(value == 0) {
+            return false;
+        }
+        block[offset] = 0;
+        grassIn.decrementAndGet(blockIndex);
+        counter.decrement((value & SICK) != 0);
+        return true;
     }
 
     /**
-     * @return the breeding age of the rabbit
+     * Take away all the grass.
      */
-    public int getBreedingAge() {
-        return BREEDING_AGE;
+    public void clear()
+    {
+        for(int i = 0; i < blocks.length(); i++) {
+            blocks.set(i, null);
+            grassIn.set(i, 0);
+        }
+        counter.reset();
     }
 
     /**
-     * @return the breeding probability of the rabbit
+     * @return How much grass there is, and how much of it is sick.
      */
-    public double getBreedingProbability() {
-        return BREEDING_PROBABILITY;
+    public Counter getCounter()
+    {
+        return counter;
     }
 
     /**
-     * @return the max litter size of the rabbit
+     * Get ready to run a step: note the weather and the parameters, and
+     * gather the blocks that hold grass by colour.
+     * @param field The field the grass grows in.
+     * @param seed The seed of the simulation.
+     * @param step The number of the step.
      */
-    public int getMaxLitterSize() {
-        return MAX_LITTER_SIZE;
+    public void startStep(Field field, long seed, int step)
+    {
+        this.field = field;
+        this.seed = seed;
+        this.step = step;
+        raining = field.isRaining();
+        ageing = field.isAcidRaining() ? 2 : 1;
+        SimulationParameters parameters = field.getParameters();
+        maxAge = parameters.getMaxAge(Species.GRASS);
+        breedingAge = parameters.getBreedingAge(Species.GRASS);
+        breedingProbability = parameters.getBreedingProbability(Species.GRASS);
+        maxLitterSize = parameters.getMaxLitterSize(Species.GRASS);
+        Arrays.fill(blocksOfColourCount, 0);
+        for(int blockIndex = 0; blockIndex < blocks.length(); blockIndex++) {
+            if(blocks.get(blockIndex) != null) {
+                int colour = (blockIndex / blockCols % 2) * 2 + blockIndex % blockCols % 2;
+                int[] ofColour = blocksOfColour[colour];
+                if(blocksOfColourCount[colour] == ofColour.length) {
+                    ofColour = Arrays.copyOf(ofColour, ofColour.length * 2);
+                    blocksOfColour[colour] = ofColour;
+                }
+                ofColour[blocksOfColourCount[colour]++] = blockIndex;
+            }
+        }
     }
 
     /**
-     * @return the max age of the rabbit
+     * @param colour A colour, from 0 to 3.
+     * @return The blocks of that colour holding grass at the start of the step;
+     * only the first getBlockCount(colour) are valid.
      */
-    protected int getMaxAge(){
-        return MAX_AGE;
+    public int[] getBlocks(int colour)
+    {
+        return blocksOfColour[colour];
     }
 
     /**
-     * @return the level of immunity to disease
+     * @param colour A colour, from 0 to 3.
+     * @return How many blocks of that colour held grass at the start of the step.
      */
-    public double getImmunity() {
-        return IMMUNE_TO_DISEASE;
+    public int getBlockCount(int colour)
+    {
+        return blocksOfColourCount[colour];
     }
 
     /**
-     * @return whether the rabbit is active at night
+     * Age the grass of one block, and in the rain let it spread. Grass
+     * born this step is left alone.
+     * @param blockIndex The index of the block.
      */
-    public boolean isActiveAtNight() {
-        return ACTIVE_AT_NIGHT;
+    public void act(int blockIndex)
+    {
+        byte[] block = blocks.get(blockIndex);
+        int firstRow = blockIndex / blockCols << BLOCK_SHIFT;
+        int firstCol = blockIndex % blockCols << BLOCK_SHIFT;
+        int rows = Math.min(BLOCK_SIZE, depth - firstRow);
+        int cols = Math.min(BLOCK_SIZE, width - firstCol);
+        for(int r = 0; r < rows; r++) {
+            for(int c = 0; c < cols; c++) {
+                int offset = r << BLOCK_SHIFT | c;
+                int value = block[offset] & 0xff;
+                if(value == 0 || (value & BORN) != 0) {
+                    continue;
+                }
+                boolean sick = (value & SICK) != 0;
+                int age = (value & AGE_MASK) - 1 + ageing + (sick ? 1 : 0);
+                if(age > maxAge) {
+                    block[offset] = 0;
+                    grassIn.decrementAndGet(blockIndex);
+                    counter.decrement(sick);
+                    continue;
+                }
+                block[offset] = (byte) ((age + 1) | (sick ? SICK : 0));
+                if(raining && age >= breedingAge) {
+                    spread((firstRow + r) * width + firstCol + c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Let the grass of a cell spread to free neighbouring land, with the
+     * same chances as a plant.
+     * @param index The index of the cell.
+     */
+    private void spread(int index)
+    {
+        Randomizer.select(seed, step, STREAM_OFFSET + index);
+        if(rand.nextDouble() > breedingProbability) {
+            return;
+        }
+        int births = rand.nextInt(maxLitterSize) + 1;
+        int count = field.neighbourCount(index);
+        int order = field.shuffleNeighbours(index);
+        for(int k = 0; k < count && births > 0; k++) {
+            int next = field.neighbour(index, order, k);
+            if(field.isFree(next)) {
+                births--;
+                if(!field.isWater(next)) {
+                    set(blockOf(next), offsetOf(next), 0, rand.nextDouble() < SICK_MUTATION_PROBABILITY, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finish a step: grass born in it becomes ordinary grass, and blocks
+     * left bare are given back. Not to be called while blocks are acting.
+     */
+    public void endStep()
+    {
+        for(int blockIndex = 0; blockIndex < blocks.length(); blockIndex++) {
+            byte[] block = blocks.get(blockIndex);
+            if(block == null) {
+                continue;
+            }
+            if(grassIn.get(blockIndex) == 0) {
+                blocks.set(blockIndex, null);
+            }
+            else if(bornIn[blockIndex]) {
+                for(int offset = 0; offset < BLOCK_CELLS; offset++) {
+                    block[offset] &= ~BORN;
+                }
+            }
+            bornIn[blockIndex] = false;
+        }
+        field = null;
+    }
+
+    /**
+     * @return How many blocks the field is divided into.
+     */
+    public int getBlockCount()
+    {
+        return blocks.length();
+    }
+
+    /**
+     * @param depth The depth of a field.
+     * @param width The width of a field.
+     * @return How many blocks a field of that size is divided into.
+     */
+    static int blockCount(int depth, int width)
+    {
+        return ((depth + BLOCK_MASK) >> BLOCK_SHIFT) * ((width + BLOCK_MASK) >> BLOCK_SHIFT);
+    }
+
+    /**
+     * @param blockIndex The index of a block.
+     * @return The cells of the block, row by row, or null if it has no grass.
+     * Not to be changed.
+     */
+    byte[] getBlock(int blockIndex)
+    {
+        return blocks.get(blockIndex);
+    }
+
+    /**
+     * Put back a saved block, replacing whatever grass it held.
+     * @param blockIndex The index of the block.
+     * @param cells The saved cells, as from getBlock.
+     */
+    void restoreBlock(int blockIndex, byte[] cells)
+    {
+        byte[] block = new byte[BLOCK_CELLS];
+        byte[] old = blocks.getAndSet(blockIndex, block);
+        if(old != null) {
+            for(byte value : old) {
+                if(value != 0) {
+                    counter.decrement((value & SICK) != 0);
+                }
+            }
+        }
+        int count = 0;
+        for(int offset = 0; offset < BLOCK_CELLS; offset++) {
+            int value = cells[offset] & (AGE_MASK | SICK);
+            block[offset] = (byte) value;
+            if(value != 0) {
+                count++;
+                counter.increment((value & SICK) != 0);
+            }
+        }
+        grassIn.set(blockIndex, count);
     }
 }
@@ -2,14 +2,16 @@ package com.company;
 
 /**
  * Represent a location in a rectangular grid.
+ * Locations are immutable, so a Field hands out one shared
+ * instance per cell rather than creating new ones.
  * 
  * @author Nicholas Pezzotti
  */
-public class Location
+public final class Location
 {
     // Row and column positions.
-    private int row;
-    private int col;
+    private final int row;
+    private final int col;
 
     /**
      * Represent a row and column.
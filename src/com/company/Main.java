@@ -1,14 +1,306 @@
 package com.company;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
 public class Main {
 
+    // The size of the field when none is given.
+    private static final int DEFAULT_DEPTH = 100;
+    private static final int DEFAULT_WIDTH = 200;
+
     /**
      * Provides the window size for Simulator View
-     * and runs a long simulation
+     * and runs a long simulation.
+     * Run with "[--seed s] [--terrain file]" to seed the simulation, and to take the
+     * land and water, and the size of the field, from an image or a binary map file.
+     * Run with "--headless steps [depth width] [--threads n] [--seed s] [--terrain file]
+     * [--restore file] [--save file] [--series file] [--sparse density]" to simulate the given
+     * number of steps without a window and report the throughput, optionally carrying on from
+     * a checkpoint file, saving one at the end and recording the population at every step.
+     * With --sparse the field only stores the parts of it that hold organisms, and is
+     * populated that much less densely, for very large and mostly empty fields.
+     * Run with "--sweep steps [depth width] [--seeds s,s,...] [--vary SPECIES.NAME=v,v,...]...
+     * [--threads n] [--out file]" to run every combination of the given parameter values
+     * and seeds, many at once, and write a summary of each run as CSV.
      * @param args arguments
      */
     public static void main(String[] args) {
-        Simulator sim = new Simulator(100,200);
+        if (args.length > 0 && args[0].equals("--headless")) {
+            runHeadless(args);
+        }
+        else if (args.length > 0 && args[0].equals("--sweep")) {
+            runSweep(args);
+        }
+        else {
+            runWindowed(args);
+        }
+    }
+
+    /**
+     * Runs a long simulation in a window.
+     * @param args the command line: [--seed s] [--terrain file]
+     */
+    private static void runWindowed(String[] args) {
+        long seed = Randomizer.DEFAULT_SEED;
+        Terrain terrain = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            }
+            else if (args[i].equals("--terrain") && i + 1 < args.length) {
+                terrain = loadTerrain(args[++i]);
+            }
+            else {
+                System.err.println("Usage: Main [--seed s] [--terrain file]");
+                System.exit(2);
+            }
+        }
+        if (terrain == null) {
+            terrain = Terrain.standard(DEFAULT_DEPTH, DEFAULT_WIDTH);
+        }
+        Simulator sim = new Simulator(new Field(terrain), SimulationParameters.defaults(), seed, 1.0, true);
         sim.runLongSimulation();
     }
+
+    /**
+     * Loads terrain from a file, exiting if it cannot be read.
+     * @param path an image or a binary map file
+     * @return the terrain
+     */
+    private static Terrain loadTerrain(String path) {
+        try {
+            return Terrain.load(Paths.get(path));
+        }
+        catch (IOException e) {
+            System.err.println("Cannot read terrain: " + e.getMessage());
+            System.exit(1);
+            return null;
+        }
+    }
+
+    /**
+     * Runs a simulation without a view, at full speed, and prints how
+     * many steps per second it managed.
+     * @param args the command line: --headless steps [depth width] [--threads n] [--seed s] [--terrain file]
+     *             [--restore file] [--save file] [--series file] [--sparse density]
+     */
+    private static void runHeadless(String[] args) {
+        List<Integer> positional = new ArrayList<>();
+        int threads = 1;
+        long seed = Randomizer.DEFAULT_SEED;
+        Terrain terrain = null;
+        String restoreFrom = null;
+        String saveTo = null;
+        String seriesTo = null;
+        double sparseDensity = 0;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            }
+            else if (args[i].equals("--seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            }
+            else if (args[i].equals("--terrain") && i + 1 < args.length) {
+                terrain = loadTerrain(args[++i]);
+            }
+            else if (args[i].equals("--restore") && i + 1 < args.length) {
+                restoreFrom = args[++i];
+            }
+            else if (args[i].equals("--save") && i + 1 < args.length) {
+                saveTo = args[++i];
+            }
+            else if (args[i].equals("--series") && i + 1 < args.length) {
+                seriesTo = args[++i];
+            }
+            else if (args[i].equals("--sparse") && i + 1 < args.length) {
+                sparseDensity = Double.parseDouble(args[++i]);
+            }
+            else {
+                positional.add(Integer.parseInt(args[i]));
+            }
+        }
+        if ((positional.size() != 1 && (positional.size() != 3 || terrain != null || restoreFrom != null))
+                || (sparseDensity != 0 && restoreFrom != null)) {
+            System.err.println("Usage: Main --headless steps [depth width] [--threads n] [--seed s] [--terrain file]"
+                    + " [--restore file] [--save file] [--series file] [--sparse density]");
+            System.exit(2);
+        }
+        int steps = positional.get(0);
+        int depth = DEFAULT_DEPTH;
+        int width = DEFAULT_WIDTH;
+        if (positional.size() == 3) {
+            depth = positional.get(1);
+            width = positional.get(2);
+        }
+
+        if (terrain == null) {
+            terrain = Terrain.standard(depth, width);
+        }
+
+        Simulator sim;
+        try {
+            if (restoreFrom != null) {
+                long loadStart = System.nanoTime();
+                sim = Simulator.fromCheckpoint(Paths.get(restoreFrom), false);
+                System.out.printf("Restored step %d from %s in %.2f s%n",
+                        sim.getStep(), restoreFrom, (System.nanoTime() - loadStart) / 1e9);
+            }
+            else if (sparseDensity != 0) {
+                sim = new Simulator(new ChunkedField(terrain), SimulationParameters.defaults(), seed,
+                        sparseDensity, false);
+            }
+            else {
+                sim = new Simulator(new Field(terrain), SimulationParameters.defaults(), seed, 1.0, false);
+            }
+        }
+        catch (IOException e) {
+            System.err.println("Cannot restore checkpoint: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        TimeSeriesWriter series = null;
+        if (seriesTo != null) {
+            series = openSeries(seriesTo);
+            series.stepCompleted(sim.getStep(), sim.getField());
+            sim.addObserver(series);
+        }
+        sim.setParallelism(threads);
+        depth = sim.getField().getDepth();
+        width = sim.getField().getWidth();
+        seed = sim.getSeed();
+        long start = System.nanoTime();
+        int stepsRun = sim.simulate(steps);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (series != null) {
+            try {
+                series.close();
+            }
+            catch (IOException e) {
+                System.err.println("Cannot write time series: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+
+        System.out.printf("Simulated %d steps on a %dx%d field with %d thread(s) and seed %d in %.2f s (%.1f steps/sec)%n",
+                stepsRun, depth, width, threads, seed, seconds, stepsRun / seconds);
+        System.out.println("  Population: " + sim.getField().getStats().getPopulationDetails());
+        printPoolUsage(sim.getField().getPool());
+        if (sim.getField() instanceof ChunkedField) {
+            ChunkedField chunked = (ChunkedField) sim.getField();
+            System.out.printf("  %d of %d chunks allocated%n", chunked.getAllocatedChunkCount(), chunked.getChunkCount());
+        }
+        if (saveTo != null) {
+            try {
+                sim.saveCheckpoint(Paths.get(saveTo));
+                System.out.println("  Saved step " + sim.getStep() + " to " + saveTo);
+            }
+            catch (IOException e) {
+                System.err.println("Cannot save checkpoint: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Runs a parameter sweep and writes a summary of every run.
+     * @param args the command line: --sweep steps [depth width] [--seeds s,s,...]
+     *             [--vary SPECIES.NAME=v,v,...]... [--threads n] [--out file]
+     */
+    private static void runSweep(String[] args) {
+        List<Integer> positional = new ArrayList<>();
+        List<String> varied = new ArrayList<>();
+        String seeds = null;
+        String out = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--seeds") && i + 1 < args.length) {
+                seeds = args[++i];
+            }
+            else if (args[i].equals("--vary") && i + 1 < args.length) {
+                varied.add(args[++i]);
+            }
+            else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            }
+            else if (args[i].equals("--out") && i + 1 < args.length) {
+                out = args[++i];
+            }
+            else {
+                positional.add(Integer.parseInt(args[i]));
+            }
+        }
+        if (positional.size() != 1 && positional.size() != 3) {
+            System.err.println("Usage: Main --sweep steps [depth width] [--seeds s,s,...]"
+                    + " [--vary SPECIES.NAME=v,v,...]... [--threads n] [--out file]");
+            System.exit(2);
+        }
+        int depth = positional.size() == 3 ? positional.get(1) : DEFAULT_DEPTH;
+        int width = positional.size() == 3 ? positional.get(2) : DEFAULT_WIDTH;
+
+        ParameterSweep sweep = new ParameterSweep(depth, width, positional.get(0), SimulationParameters.defaults());
+        if (seeds != null) {
+            for (String seed : seeds.split(",")) {
+                sweep.addSeed(Long.parseLong(seed));
+            }
+        }
+        for (String spec : varied) {
+            sweep.vary(spec);
+        }
+        try {
+            long start = System.nanoTime();
+            List<RunSummary> summaries = sweep.run(threads);
+            System.err.printf("Ran %d simulations on %d thread(s) in %.2f s%n",
+                    summaries.size(), threads, (System.nanoTime() - start) / 1e9);
+            PrintWriter writer = out == null ? new PrintWriter(System.out)
+                    : new PrintWriter(Files.newBufferedWriter(Paths.get(out)));
+            sweep.writeCsv(summaries, writer);
+            if (out != null) {
+                writer.close();
+            }
+        }
+        catch (IOException e) {
+            System.err.println("Cannot write summary: " + e.getMessage());
+            System.exit(1);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Opens a time series file, exiting if it cannot be opened.
+     * @param path the file; CSV if it ends in ".csv", otherwise binary
+     * @return the writer
+     */
+    private static TimeSeriesWriter openSeries(String path) {
+        try {
+            return new TimeSeriesWriter(Paths.get(path), TimeSeriesWriter.formatFor(Paths.get(path)));
+        }
+        catch (IOException e) {
+            System.err.println("Cannot open time series: " + e.getMessage());
+            System.exit(1);
+            return null;
+        }
+    }
+
+    /**
+     * Prints how many organisms of each species were recycled rather than constructed.
+     * @param pool the pool the simulation's organisms came from
+     */
+    private static void printPoolUsage(OrganismPool pool) {
+        for (Species species : Species.values()) {
+            if (species.isLayer()) {
+                continue;
+            }
+            long hits = pool.getHits(species);
+            long misses = pool.getMisses(species);
+            System.out.printf("  %-10s %10d recycled %10d constructed (%.1f%% recycled)%n",
+                    species, hits, misses, hits + misses == 0 ? 0.0 : 100.0 * hits / (hits + misses));
+        }
+    }
 }
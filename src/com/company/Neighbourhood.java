@@ -0,0 +1,235 @@
+package com.company;
+
+import java.util.Random;
+
+/**
+ * The cells around an organism, read once at the start of its turn and
+ * visited in one random order by everything it does in that turn. Each
+ * cell's occupant and whether it is free are kept, and whether it is the
+ * right territory for the organism is worked out the first time it is
+ * asked. The organism keeps the view up to date as it changes the cells.
+ *
+ * The view is read from the species id the field keeps for each cell,
+ * and an occupant is only fetched when it is asked for. The species
+ * around, and the grass that can be grazed, are gathered into a mask, so
+ * whether any prey or mate is near is one bitwise test.
+ *
+ * There is one view per thread, reused for every turn taken on it, so
+ * taking a view allocates nothing.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class Neighbourhood
+{
+    // The view of each thread.
+    private static final ThreadLocal<Neighbourhood> VIEWS = ThreadLocal.withInitial(Neighbourhood::new);
+    // What is known of a cell's territory.
+    private static final byte UNKNOWN = 0, RIGHT = 1, WRONG = 2;
+    private static final Random rand = Randomizer.getRandom();
+
+    // The organism whose turn it is, and the field it lives in.
+    private Organism organism;
+    private Field field;
+    // How many neighbours there are, and for each in the chosen order,
+    // its index, its occupant, whether it is free and its territory.
+    private int size;
+    private final int[] cells = new int[Field.MAX_NEIGHBOURS];
+    private final int[] speciesIds = new int[Field.MAX_NEIGHBOURS];
+    // The occupants fetched so far; null for any not yet asked for.
+    private final Organism[] occupants = new Organism[Field.MAX_NEIGHBOURS];
+    private final boolean[] free = new boolean[Field.MAX_NEIGHBOURS];
+    private final byte[] territory = new byte[Field.MAX_NEIGHBOURS];
+    // The bits of the species in the neighbouring cells, with the grass
+    // bit for grass in an empty one. Cells emptied since the scan may
+    // still be counted.
+    private int speciesMask;
+
+    /**
+     * Read the cells around an organism, in a random order drawn from
+     * the current random stream, into the calling thread's view.
+     * @param organism The organism, which must have a location.
+     * @return The thread's view, valid until the next call on this thread.
+     */
+    public static Neighbourhood of(Organism organism)
+    {
+        Neighbourhood view = VIEWS.get();
+        view.scan(organism);
+        return view;
+    }
+
+    /**
+     * Read the cells around an organism.
+     * @param organism The organism.
+     */
+    private void scan(Organism organism)
+    {
+        this.organism = organism;
+        field = organism.getField();
+        int here = field.getIndex(organism.getLocation());
+        size = field.neighbourCount(here);
+        int order = field.shuffleNeighbours(here);
+        Grass grass = field.getGrass();
+        int mask = 0;
+        for(int k = 0; k < size; k++) {
+            int cell = field.neighbour(here, order, k);
+            int id = field.getSpeciesIdAt(cell);
+            cells[k] = cell;
+            speciesIds[k] = id;
+            occupants[k] = null;
+            territory[k] = UNKNOWN;
+            if(id != Species.NONE) {
+                free[k] = false;
+                mask |= Species.bitOf(id);
+            }
+            else if(grass.has(cell)) {
+                free[k] = false;
+                mask |= Species.GRASS.getBit();
+            }
+            else {
+                free[k] = true;
+            }
+        }
+        speciesMask = mask;
+    }
+
+    /**
+     * @param mask A mask of species bits.
+     * @return Whether any of those species may be in a neighbouring cell.
+     */
+    public boolean hasAny(int mask)
+    {
+        return (speciesMask & mask) != 0;
+    }
+
+    /**
+     * @return How many neighbours there are.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @param k Which neighbour, from 0 to size() - 1.
+     * @return The index of its cell.
+     */
+    public int cell(int k)
+    {
+        return cells[k];
+    }
+
+    /**
+     * @param k Which neighbour.
+     * @return The location of its cell.
+     */
+    public Location location(int k)
+    {
+        return field.getLocation(cells[k]);
+    }
+
+    /**
+     * @param k Which neighbour.
+     * @return The id of the species in its cell, or Species.NONE.
+     */
+    public int speciesId(int k)
+    {
+        return speciesIds[k];
+    }
+
+    /**
+     * @param k Which neighbour.
+     * @return The organism in its cell, or null.
+     */
+    public Organism occupant(int k)
+    {
+        if(occupants[k] == null && speciesIds[k] != Species.NONE) {
+            occupants[k] = field.getObjectAt(cells[k]);
+        }
+        return occupants[k];
+    }
+
+    /**
+     * @param k Which neighbour.
+     * @return Whether its cell holds neither an organism nor grass.
+     */
+    public boolean isFree(int k)
+    {
+        return free[k];
+    }
+
+    /**
+     * @param k Which neighbour.
+     * @return Whether its cell is territory the organism may live in.
+     */
+    public boolean isRightTerritory(int k)
+    {
+        if(territory[k] == UNKNOWN) {
+            territory[k] = organism.isCorrectTerritory(location(k)) ? RIGHT : WRONG;
+        }
+        return territory[k] == RIGHT;
+    }
+
+    /**
+     * Find the first free neighbour after a given one.
+     * @param after The neighbour to search after, or -1 to search from the start.
+     * @return The next free neighbour, or -1 if there is none.
+     */
+    public int nextFree(int after)
+    {
+        for(int k = after + 1; k < size; k++) {
+            if(free[k]) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Pick a free neighbour at random, independently of the view's order,
+     * drawing from the current random stream.
+     * @return The free neighbour, or -1 if there is none.
+     */
+    public int anyFree()
+    {
+        int count = 0;
+        for(int k = 0; k < size; k++) {
+            if(free[k]) {
+                count++;
+            }
+        }
+        if(count == 0) {
+            return -1;
+        }
+        int chosen = rand.nextInt(count);
+        int k = nextFree(-1);
+        for(int skipped = 0; skipped < chosen; skipped++) {
+            k = nextFree(k);
+        }
+        return k;
+    }
+
+    /**
+     * Note that an organism has been put in a neighbour's cell.
+     * @param k Which neighbour.
+     * @param occupant The organism now in its cell.
+     */
+    public void occupy(int k, Organism occupant)
+    {
+        occupants[k] = occupant;
+        speciesIds[k] = occupant.getSpecies().getId();
+        speciesMask |= occupant.getSpecies().getBit();
+        free[k] = false;
+    }
+
+    /**
+     * Note that a neighbour's cell has been emptied, of its organism and
+     * of any grass.
+     * @param k Which neighbour.
+     */
+    public void vacate(int k)
+    {
+        occupants[k] = null;
+        speciesIds[k] = Species.NONE;
+        free[k] = true;
+    }
+}
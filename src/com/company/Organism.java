@@ -1,6 +1,5 @@
 package com.company;
 
-import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 
 /**
@@ -28,8 +27,37 @@ public abstract class Organism {
     protected Organism(Field field, Location location, boolean isSick) {
         setAlive(true); //$ alive = true;
         this.setField(field);
-        setLocation(location);
+        // Sickness is counted when the organism is placed, so set it first.
         this.isSick = isSick; 
+        setLocation(location);
+    }
+
+    /**
+     * @return the species the organism belongs to
+     */
+    abstract Species getSpecies();
+
+    /**
+     * Sets the starting age (and food level, for animals) of an organism that
+     * has just been created or recycled
+     * @param randomAge whether to spawn it as part of populating the board or as an offspring
+     */
+    abstract void initialise(boolean randomAge);
+
+    /**
+     * Brings a dead organism back to life as a new one, exactly as if it had
+     * just been constructed. Used to recycle organisms from an OrganismPool
+     * @param randomAge whether to spawn it as part of populating the board or as an offspring
+     * @param field the field the organism is in
+     * @param location the specific location within the field
+     * @param isSick whether the organism is sick or not
+     */
+    protected void reset(boolean randomAge, Field field, Location location, boolean isSick) {
+        setAlive(true);
+        setField(field);
+        this.isSick = isSick;
+        setLocation(location);
+        initialise(randomAge);
     }
 
     /**
@@ -37,6 +65,14 @@ public abstract class Organism {
      */
     abstract boolean isActiveAtNight();
 
+    /**
+     * @return when the organism takes its turn, which decides the bucket
+     * of the population it is kept in
+     */
+    Activity getActivity() {
+        return isActiveAtNight() ? Activity.NIGHT_ACTIVE : Activity.DAY_ONLY;
+    }
+
     /**
      * Checks if a location is correct territory for the specific organism
      * this applies to animals that live exclusively on water or land
@@ -58,26 +94,34 @@ public abstract class Organism {
     abstract void act(List<Organism> newOrganisms);
 
     /**
-     * @return the maximum age of the organism
+     * @return the maximum age of the organism, from its field's parameters
      */
-    abstract int getMaxAge();
+    int getMaxAge() {
+        return field.getParameters().getMaxAge(getSpecies());
+    }
 
     /**
-     * @return the minimum age organisms have to be to breed
+     * @return the minimum age organisms have to be to breed, from its field's parameters
      */
-    abstract int getBreedingAge();
+    int getBreedingAge() {
+        return field.getParameters().getBreedingAge(getSpecies());
+    }
 
     /**
      * @return the probability the organism will breed upon
-     * encountering a suitable mate
+     * encountering a suitable mate, from its field's parameters
      */
-    abstract double getBreedingProbability();
+    double getBreedingProbability() {
+        return field.getParameters().getBreedingProbability(getSpecies());
+    }
 
     /**
      * @return the maximum number of offspring an organism can produce
-     * when procreating
+     * when procreating, from its field's parameters
      */
-    abstract int getMaxLitterSize();
+    int getMaxLitterSize() {
+        return field.getParameters().getMaxLitterSize(getSpecies());
+    }
 
     /**
      * @return the food value held by an organism. It is used to regulate
@@ -195,8 +239,9 @@ public abstract class Organism {
     }
 
     /**
-     * Creates an offspring of any type of organism by invoking the correct constructor
-     * depending on which object the method is being called on.
+     * Creates an offspring of any type of organism, recycling a dead one of
+     * its species from the field's pool or else invoking the constructor
+     * registered for its species.
      * @param randomAge the age the offspring will spawn with
      * @param field the field that will be added to the offspring object
      * @param location the location it will be placed in
@@ -205,18 +250,6 @@ public abstract class Organism {
      * called on
      */
     protected Organism createBaby(boolean randomAge, Field field, Location location, boolean isSick) {
-        Organism young = null;
-        try {
-            young = getClass().getConstructor(boolean.class, Field.class, Location.class, boolean.class).newInstance(randomAge, field, location, isSick);
-        } catch (InstantiationException e) {
-            e.printStackTrace();
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
-        } catch (InvocationTargetException e) {
-            e.printStackTrace();
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
-        }
-        return young;
+        return field.getPool().obtain(getSpecies(), randomAge, field, location, isSick);
     }
 }
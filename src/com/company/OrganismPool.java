@@ -0,0 +1,100 @@
+package com.company;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps dead organisms so that they can be brought back to life as
+ * newborns of the same species, instead of constructing new ones.
+ * There is one free-list per species, each guarded by its own lock so
+ * that tiles stepping in parallel can give birth at the same time.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class OrganismPool
+{
+    // The dead organisms of each species, indexed by species ordinal.
+    private final List<ArrayList<Organism>> free;
+    // How many organisms of each species were recycled.
+    private final long[] hits;
+    // How many organisms of each species had to be constructed.
+    private final long[] misses;
+
+    /**
+     * Create an empty pool.
+     */
+    public OrganismPool()
+    {
+        int speciesCount = Species.values().length;
+        free = new ArrayList<>(speciesCount);
+        for(int i = 0; i < speciesCount; i++) {
+            free.add(new ArrayList<>());
+        }
+        hits = new long[speciesCount];
+        misses = new long[speciesCount];
+    }
+
+    /**
+     * Create an organism, reusing a dead one of its species if there is one.
+     * @param species The species of the organism.
+     * @param randomAge Whether to give it a random age, as when populating the field.
+     * @param field The field it will live in.
+     * @param location Its location in the field.
+     * @param isSick Whether it is sick.
+     * @return The organism, alive and placed in the field.
+     */
+    public Organism obtain(Species species, boolean randomAge, Field field, Location location, boolean isSick)
+    {
+        ArrayList<Organism> dead = free.get(species.ordinal());
+        Organism organism = null;
+        synchronized(dead) {
+            if(dead.isEmpty()) {
+                misses[species.ordinal()]++;
+            }
+            else {
+                hits[species.ordinal()]++;
+                organism = dead.remove(dead.size() - 1);
+            }
+        }
+        if(organism == null) {
+            return species.create(randomAge, field, location, isSick);
+        }
+        organism.reset(randomAge, field, location, isSick);
+        return organism;
+    }
+
+    /**
+     * Hand a dead organism back to the pool. The simulation must no longer
+     * hold any reference to it, as it may be reused by the next birth.
+     * @param organism The dead organism.
+     */
+    public void release(Organism organism)
+    {
+        ArrayList<Organism> dead = free.get(organism.getSpecies().ordinal());
+        synchronized(dead) {
+            dead.add(organism);
+        }
+    }
+
+    /**
+     * @param species A species.
+     * @return How many organisms of that species were recycled.
+     */
+    public long getHits(Species species)
+    {
+        synchronized(free.get(species.ordinal())) {
+            return hits[species.ordinal()];
+        }
+    }
+
+    /**
+     * @param species A species.
+     * @return How many organisms of that species had to be constructed.
+     */
+    public long getMisses(Species species)
+    {
+        synchronized(free.get(species.ordinal())) {
+            return misses[species.ordinal()];
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.company;
+
+/**
+ * Decides how fast a simulation with a view runs and which of its steps
+ * are drawn. It aims at one of three things: a number of steps per
+ * second, a number of frames per second (stepping as fast as possible
+ * and drawing only as often as asked), or simply as many steps as
+ * possible. When a step and its drawing overrun the time a step is
+ * allowed, steps are drawn less often first; the simulation only falls
+ * behind its target once even that is not enough.
+ * Used by the simulation thread only, apart from setPacing.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class PacingGovernor
+{
+    /**
+     * What the governor aims at.
+     */
+    public enum Mode
+    {
+        STEPS_PER_SECOND("Steps/sec"),
+        FRAMES_PER_SECOND("Frames/sec"),
+        AS_FAST_AS_POSSIBLE("As fast as possible");
+
+        private final String label;
+
+        Mode(String label)
+        {
+            this.label = label;
+        }
+
+        public String toString()
+        {
+            return label;
+        }
+    }
+
+    // The speed a simulation with a view starts at, in steps per second.
+    public static final double DEFAULT_STEPS_PER_SECOND = 1000.0 / 60;
+    // How often frames are drawn when running as fast as possible.
+    private static final double FAST_FRAMES_PER_SECOND = 10;
+    // The most steps a drawn frame may stand for.
+    private static final int MAX_RENDER_INTERVAL = 16;
+    // How much of each new measurement goes into the running averages.
+    private static final double SMOOTHING = 1.0 / 8;
+
+    private volatile Mode mode;
+    // Steps or frames per second, depending on the mode.
+    private volatile double target;
+    // When the current step started, from System.nanoTime.
+    private long stepStart;
+    // When the last frame was drawn.
+    private long lastFrame;
+    // Running averages of the time to simulate a step and to draw one.
+    private double stepNanos, renderNanos;
+    // Only every renderInterval-th step is drawn at a steps-per-second target.
+    private int renderInterval = 1;
+    private int stepsSinceRender;
+
+    /**
+     * Create a governor.
+     * @param mode What to aim at.
+     * @param target Steps or frames per second; ignored when running as
+     *               fast as possible.
+     */
+    public PacingGovernor(Mode mode, double target)
+    {
+        setPacing(mode, target);
+    }
+
+    /**
+     * Change what the governor aims at. May be called from any thread.
+     * @param mode What to aim at.
+     * @param target Steps or frames per second; ignored when running as
+     *               fast as possible.
+     */
+    public void setPacing(Mode mode, double target)
+    {
+        if(mode != Mode.AS_FAST_AS_POSSIBLE && target <= 0) {
+            throw new IllegalArgumentException("The target rate must be positive: " + target);
+        }
+        this.target = target;
+        this.mode = mode;
+    }
+
+    /**
+     * @return What the governor aims at.
+     */
+    public Mode getMode()
+    {
+        return mode;
+    }
+
+    /**
+     * @return The steps or frames per second aimed at.
+     */
+    public double getTarget()
+    {
+        return target;
+    }
+
+    /**
+     * @return How many steps each drawn frame currently stands for at a
+     * steps-per-second target.
+     */
+    public int getRenderInterval()
+    {
+        return renderInterval;
+    }
+
+    /**
+     * Note that a step is about to be simulated.
+     */
+    public void stepStarted()
+    {
+        stepStart = System.nanoTime();
+    }
+
+    /**
+     * Decide, once a step has been simulated, whether to draw it.
+     * @return true if the step should be drawn.
+     */
+    public boolean shouldRender()
+    {
+        long now = System.nanoTime();
+        stepNanos += (now - stepStart - stepNanos) * SMOOTHING;
+        switch(mode) {
+            case STEPS_PER_SECOND:
+                adjustRenderInterval();
+                return ++stepsSinceRender >= renderInterval;
+            case FRAMES_PER_SECOND:
+                return now - lastFrame >= 1e9 / target;
+            default:
+                return now - lastFrame >= 1e9 / FAST_FRAMES_PER_SECOND;
+        }
+    }
+
+    /**
+     * Note that a step has been drawn.
+     * @param renderStart When drawing started, from System.nanoTime.
+     */
+    public void rendered(long renderStart)
+    {
+        lastFrame = System.nanoTime();
+        renderNanos += (lastFrame - renderStart - renderNanos) * SMOOTHING;
+        stepsSinceRender = 0;
+    }
+
+    /**
+     * @return How long to wait before starting the next step, in
+     * nanoseconds; zero or less for no wait.
+     */
+    public long nanosUntilNextStep()
+    {
+        if(mode != Mode.STEPS_PER_SECOND) {
+            return 0;
+        }
+        return stepStart + (long) (1e9 / target) - System.nanoTime();
+    }
+
+    /**
+     * Draw just often enough for the drawing, spread over the steps it
+     * stands for, to fit in what the steps leave of their time.
+     */
+    private void adjustRenderInterval()
+    {
+        double spare = 1e9 / target - stepNanos;
+        if(spare <= 0) {
+            renderInterval = MAX_RENDER_INTERVAL;
+        }
+        else {
+            renderInterval = (int) Math.max(1, Math.min(MAX_RENDER_INTERVAL, Math.ceil(renderNanos / spare)));
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.company;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a simulation once for every combination of a grid of parameter
+ * values and seeds, many runs at a time, and summarises each run. Every
+ * run has its own Simulator, parameters and seed, and runs wholly on one
+ * thread, so a run's outcome does not depend on what else is running.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class ParameterSweep
+{
+    private final int depth, width, steps;
+    // The parameters every run starts from before the varied ones are set.
+    private final SimulationParameters base;
+    private final List<Long> seeds = new ArrayList<>();
+    // The parameters varied, and the values each takes.
+    private final List<Species> variedSpecies = new ArrayList<>();
+    private final List<SimulationParameters.Name> variedNames = new ArrayList<>();
+    private final List<double[]> variedValues = new ArrayList<>();
+
+    /**
+     * Create a sweep with no parameters varied yet.
+     * @param depth The depth of each run's field.
+     * @param width The width of each run's field.
+     * @param steps The most steps each run takes; a run also ends once
+     *              the simulation ceases to be viable.
+     * @param base The parameters that are not varied.
+     */
+    public ParameterSweep(int depth, int width, int steps, SimulationParameters base)
+    {
+        this.depth = depth;
+        this.width = width;
+        this.steps = steps;
+        this.base = base;
+    }
+
+    /**
+     * Run every combination of parameters with this seed too.
+     * @param seed The seed.
+     */
+    public void addSeed(long seed)
+    {
+        seeds.add(seed);
+    }
+
+    /**
+     * Vary a parameter over the given values.
+     * @param species The species it applies to.
+     * @param name The parameter.
+     * @param values The values it takes.
+     * @throws IllegalArgumentException If a value is out of range for the parameter.
+     */
+    public void vary(Species species, SimulationParameters.Name name, double... values)
+    {
+        for(double value : values) {
+            base.copy().set(species, name, value);
+        }
+        variedSpecies.add(species);
+        variedNames.add(name);
+        variedValues.add(values.clone());
+    }
+
+    /**
+     * Vary a parameter given as "SPECIES.NAME=value,value,...", such as
+     * "FOX.BREEDING_PROBABILITY=0.3,0.35".
+     * @param spec The parameter and its values.
+     * @throws IllegalArgumentException If the parameter or a value is not valid.
+     */
+    public void vary(String spec)
+    {
+        int dot = spec.indexOf('.');
+        int equals = spec.indexOf('=');
+        if(dot < 0 || equals < dot) {
+            throw new IllegalArgumentException("Expected SPECIES.NAME=value,...: " + spec);
+        }
+        Species species = Species.valueOf(spec.substring(0, dot).toUpperCase(Locale.ROOT));
+        SimulationParameters.Name name =
+            SimulationParameters.Name.valueOf(spec.substring(dot + 1, equals).toUpperCase(Locale.ROOT));
+        String[] parts = spec.substring(equals + 1).split(",");
+        double[] values = new double[parts.length];
+        for(int i = 0; i < parts.length; i++) {
+            values[i] = Double.parseDouble(parts[i]);
+        }
+        vary(species, name, values);
+    }
+
+    /**
+     * @return Every combination of the varied parameters' values.
+     */
+    private List<SimulationParameters> combinations()
+    {
+        List<SimulationParameters> combinations = new ArrayList<>();
+        combinations.add(base.copy());
+        for(int axis = 0; axis < variedValues.size(); axis++) {
+            List<SimulationParameters> extended = new ArrayList<>();
+            for(SimulationParameters parameters : combinations) {
+                for(double value : variedValues.get(axis)) {
+                    SimulationParameters combination = parameters.copy();
+                    combination.set(variedSpecies.get(axis), variedNames.get(axis), value);
+                    extended.add(combination);
+                }
+            }
+            combinations = extended;
+        }
+        return combinations;
+    }
+
+    /**
+     * Run every combination of parameters with every seed.
+     * @param threads How many runs to take at a time.
+     * @return The summary of each run, every seed of the first combination
+     *         first, and so on.
+     * @throws InterruptedException If interrupted while waiting for the runs.
+     */
+    public List<RunSummary> run(int threads) throws InterruptedException
+    {
+        List<Long> runSeeds = seeds.isEmpty() ? List.of(Randomizer.DEFAULT_SEED) : seeds;
+        List<Callable<RunSummary>> runs = new ArrayList<>();
+        for(SimulationParameters parameters : combinations()) {
+            for(long seed : runSeeds) {
+                runs.add(() -> runOnce(parameters, seed));
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<RunSummary> summaries = new ArrayList<>();
+            for(Future<RunSummary> future : executor.invokeAll(runs)) {
+                summaries.add(future.get());
+            }
+            return summaries;
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("A run failed", e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Run one simulation to the end.
+     * @param parameters Its parameters.
+     * @param seed Its seed.
+     * @return Its summary.
+     */
+    private RunSummary runOnce(SimulationParameters parameters, long seed)
+    {
+        Simulator simulator = new Simulator(new Field(Terrain.standard(depth, width)), parameters, seed, 1.0, false);
+        RunSummary summary = new RunSummary(seed, parameters);
+        summary.stepCompleted(simulator.getStep(), simulator.getField());
+        simulator.addObserver(summary);
+        simulator.simulate(steps);
+        return summary;
+    }
+
+    /**
+     * Write summaries as CSV: a header line and then, for each run, its
+     * seed, the values of the varied parameters, its last step, and the
+     * extinction step (empty if it survived), mean and variance of each
+     * species.
+     * @param summaries The summaries.
+     * @param out Where to write them.
+     */
+    public void writeCsv(List<RunSummary> summaries, PrintWriter out)
+    {
+        StringBuilder header = new StringBuilder("seed");
+        for(int axis = 0; axis < variedValues.size(); axis++) {
+            header.append(',').append(variedSpecies.get(axis)).append('.').append(variedNames.get(axis));
+        }
+        header.append(",last_step");
+        for(Species species : Species.values()) {
+            header.append(',').append(species).append("_EXTINCTION")
+                  .append(',').append(species).append("_MEAN")
+                  .append(',').append(species).append("_VARIANCE");
+        }
+        out.println(header);
+        for(RunSummary summary : summaries) {
+            StringBuilder line = new StringBuilder().append(summary.getSeed());
+            for(int axis = 0; axis < variedValues.size(); axis++) {
+                double value = summary.getParameters().get(variedSpecies.get(axis), variedNames.get(axis));
+                line.append(',').append(variedNames.get(axis).isWhole() ? String.valueOf((long) value) : String.valueOf(value));
+            }
+            line.append(',').append(summary.getLastStep());
+            for(Species species : Species.values()) {
+                int extinction = summary.getExtinctionStep(species);
+                line.append(',').append(extinction < 0 ? "" : String.valueOf(extinction))
+                    .append(',').append(String.format(Locale.ROOT, "%.3f", summary.getMean(species)))
+                    .append(',').append(String.format(Locale.ROOT, "%.3f", summary.getVariance(species)));
+            }
+            out.println(line);
+        }
+        out.flush();
+    }
+}
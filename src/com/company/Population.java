@@ -0,0 +1,189 @@
+package com.company;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The organisms of a simulation, kept in one bucket per Activity, each in
+ * the order the organisms were added. Iterating the population visits
+ * the buckets in the order of Activity.
+ *
+ * Each bucket has two buffers, which are swapped rather than reallocated
+ * from step to step. While a bucket takes its turn, its organisms are read
+ * from one buffer and the survivors and newborns are written into the
+ * other, so a step costs one linear pass however many organisms die.
+ *
+ * A bucket that sits out a step is not touched, so organisms killed in
+ * it stay until its next turn; they are the ones without a location.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class Population implements Iterable<Organism>
+{
+    // The size a buffer starts at.
+    private static final int INITIAL_CAPACITY = 16;
+
+    // The organisms of each activity, indexed by Activity ordinal, and how many there are.
+    private final Organism[][] current;
+    private final int[] sizes;
+    // The buffers the next generation of each activity is written into, and how far.
+    private final Organism[][] next;
+    private final int[] nextSizes;
+    // Which buckets are taking their turn, between beginGeneration and endGeneration.
+    private final boolean[] turning;
+
+    /**
+     * Create an empty population.
+     */
+    public Population()
+    {
+        int buckets = Activity.values().length;
+        current = new Organism[buckets][INITIAL_CAPACITY];
+        next = new Organism[buckets][INITIAL_CAPACITY];
+        sizes = new int[buckets];
+        nextSizes = new int[buckets];
+        turning = new boolean[buckets];
+    }
+
+    /**
+     * Add an organism to the end of its activity's bucket. If the bucket
+     * is taking its turn, the organism goes into its next generation.
+     * @param organism The organism.
+     */
+    public void add(Organism organism)
+    {
+        int bucket = organism.getActivity().ordinal();
+        if(turning[bucket]) {
+            next[bucket] = append(next[bucket], nextSizes[bucket]++, organism);
+        }
+        else {
+            current[bucket] = append(current[bucket], sizes[bucket]++, organism);
+        }
+    }
+
+    /**
+     * Store an organism in a buffer, growing the buffer if it is full.
+     * @param buffer The buffer.
+     * @param index Where to store it.
+     * @param organism The organism.
+     * @return The buffer, or a larger copy of it.
+     */
+    private static Organism[] append(Organism[] buffer, int index, Organism organism)
+    {
+        if(index == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        buffer[index] = organism;
+        return buffer;
+    }
+
+    /**
+     * Start a bucket's turn. Until endGeneration, organisms added to it
+     * go into its next generation, and its current one can be read with
+     * getGeneration.
+     * @param activity The activity of the bucket.
+     */
+    public void beginGeneration(Activity activity)
+    {
+        turning[activity.ordinal()] = true;
+    }
+
+    /**
+     * @param activity An activity.
+     * @return The buffer holding the bucket's organisms; only the first
+     * size(activity) are valid. Not to be changed.
+     */
+    public Organism[] getGeneration(Activity activity)
+    {
+        return current[activity.ordinal()];
+    }
+
+    /**
+     * @param activity An activity.
+     * @return How many organisms the bucket holds, not counting any added
+     * to its next generation.
+     */
+    public int size(Activity activity)
+    {
+        return sizes[activity.ordinal()];
+    }
+
+    /**
+     * End the turn of every bucket that began one: its next generation
+     * becomes its organisms, and the old buffer is emptied for reuse.
+     */
+    public void endGeneration()
+    {
+        for(int bucket = 0; bucket < turning.length; bucket++) {
+            if(turning[bucket]) {
+                Organism[] old = current[bucket];
+                Arrays.fill(old, 0, sizes[bucket], null);
+                current[bucket] = next[bucket];
+                sizes[bucket] = nextSizes[bucket];
+                next[bucket] = old;
+                nextSizes[bucket] = 0;
+                turning[bucket] = false;
+            }
+        }
+    }
+
+    /**
+     * @return How many organisms there are, including any killed in a
+     * bucket that has not had its turn since.
+     */
+    public int size()
+    {
+        int size = 0;
+        for(int bucketSize : sizes) {
+            size += bucketSize;
+        }
+        return size;
+    }
+
+    /**
+     * Remove every organism.
+     */
+    public void clear()
+    {
+        for(int bucket = 0; bucket < current.length; bucket++) {
+            Arrays.fill(current[bucket], 0, sizes[bucket], null);
+            Arrays.fill(next[bucket], 0, nextSizes[bucket], null);
+            sizes[bucket] = 0;
+            nextSizes[bucket] = 0;
+            turning[bucket] = false;
+        }
+    }
+
+    /**
+     * @return An iterator over every organism, bucket by bucket.
+     */
+    @Override
+    public Iterator<Organism> iterator()
+    {
+        return new Iterator<Organism>()
+        {
+            private int bucket;
+            private int next;
+
+            @Override
+            public boolean hasNext()
+            {
+                while(bucket < current.length && next == sizes[bucket]) {
+                    bucket++;
+                    next = 0;
+                }
+                return bucket < current.length;
+            }
+
+            @Override
+            public Organism next()
+            {
+                if(!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current[bucket][next++];
+            }
+        };
+    }
+}
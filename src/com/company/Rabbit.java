@@ -10,10 +10,6 @@ import java.util.Random;
  * @version 19/02/2018
  */
 public class Rabbit extends GroundAnimal {
-    private static final int BREEDING_AGE = 5;
-    private static final int MAX_AGE = 25;
-    private static final double BREEDING_PROBABILITY = 0.87;
-    private static final int MAX_LITTER_SIZE = 6;
     private static final int MAX_FOOD = 7;
     private static final int FOOD_VALUE = 19;
     private static final Random rand = Randomizer.getRandom();
@@ -32,8 +28,17 @@ public class Rabbit extends GroundAnimal {
      */
     public Rabbit(boolean randomAge, Field field, Location location, boolean isSick) {
         super(rand.nextBoolean(), field, location, isSick);
+        initialise(randomAge);
+    }
+
+    /**
+     * Sets the starting age and food level of a rabbit that has just been
+     * created or recycled
+     * @param randomAge whether to spawn it as part of populating the board or as an offspring
+     */
+    protected void initialise(boolean randomAge) {
         if(randomAge) {
-            setAge(rand.nextInt(MAX_AGE));
+            setAge(rand.nextInt(getMaxAge()));
             setFoodLevel(rand.nextInt(MAX_FOOD));
         } else {
             setAge(0);
@@ -41,6 +46,13 @@ public class Rabbit extends GroundAnimal {
         }
     }
 
+    /**
+     * @return the species of the rabbit
+     */
+    public Species getSpecies() {
+        return Species.RABBIT;
+    }
+
     /**
      * @return the food value of the rabbit
      */
@@ -57,34 +69,6 @@ public class Rabbit extends GroundAnimal {
         setFoodLevel(getFoodLevel() + preyFoodValue);
     }
 
-    /**
-     * @return the max age of the rabbit
-     */
-    protected int getMaxAge(){
-        return MAX_AGE;
-    }
-
-    /**
-     * @return the breeding age of the rabbit
-     */
-    public int getBreedingAge() {
-        return BREEDING_AGE;
-    }
-
-    /**
-     * @return the breeding probability of the rabbit
-     */
-    public double getBreedingProbability() {
-        return BREEDING_PROBABILITY;
-    }
-
-    /**
-     * @return the max litter size of the rabbit
-     */
-    public int getMaxLitterSize() {
-        return MAX_LITTER_SIZE;
-    }
-
     /**
      * @return the maximum food a rabbit can eat
      */
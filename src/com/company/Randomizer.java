@@ -3,22 +3,30 @@ package com.company;
 import java.util.Random;
 
 /**
- * Provide control over the randomization of the simulation. By using the shared, fixed-seed 
- * randomizer, repeated runs will perform exactly the same (which helps with testing). Set 
- * 'useShared' to false to get different random behaviour every time.
- * 
+ * Provide control over the randomization of the simulation. Random numbers
+ * come from counter-based streams: a stream is picked by a key made of the
+ * simulation's seed, the step and an id (the cell an organism starts its
+ * turn in, or one of the fixed ids below), and the n-th number of a stream
+ * is a hash of its key and n. Nothing is shared between threads, and an
+ * organism draws the same numbers whichever thread runs it, so repeated
+ * runs with the same seed perform exactly the same.
+ *
  * @author David J. Barnes and Michael Kölling
  * @version 2016.02.29
  */
 public class Randomizer
 {
     // The default seed for control of randomization.
-    private static final int SEED = (int)(Math.random()*1000 + 1);
-    //private static final int SEED = (1118);
-    // A shared Random object, if required.
-    private static final Random rand = new Random(SEED);
-    // Determine whether a shared random generator is to be provided.
-    private static final boolean useShared = true;
+    public static final long DEFAULT_SEED = 1118;
+    // The id of the stream the weather is drawn from.
+    public static final long WEATHER_STREAM = -1;
+    // The step number of the streams used to populate the field.
+    public static final long POPULATE_STEP = -1;
+
+    // The stream each thread is currently drawing from.
+    private static final ThreadLocal<Stream> streams = ThreadLocal.withInitial(Stream::new);
+    // The Random every class draws from; it reads the calling thread's stream.
+    private static final Random rand = new StreamRandom();
 
     /**
      * Constructor for objects of class Randomizer
@@ -28,28 +36,98 @@ public class Randomizer
     }
 
     /**
-     * Provide a random generator.
+     * Provide a random generator. It is shared, but every thread draws from
+     * the stream it last selected.
      * @return A random object.
      */
     public static Random getRandom()
     {
-        if(useShared) {
-            return rand;
+        return rand;
+    }
+
+    /**
+     * Make the calling thread draw from the stream with the given key, from
+     * its start.
+     * @param seed The seed of the simulation.
+     * @param step The step being simulated.
+     * @param id The id of the stream within the step, such as a cell index.
+     */
+    public static void select(long seed, long step, long id)
+    {
+        streams.get().select(seed, step, id);
+    }
+
+    /**
+     * The SplitMix64 finaliser, which scrambles every bit of its argument.
+     * @param z The value to scramble.
+     * @return The scrambled value.
+     */
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * The position of one thread in one stream.
+     */
+    private static class Stream
+    {
+        // Keeps successive numbers of a stream apart.
+        private static final long GAMMA = 0x9e3779b97f4a7c15L;
+
+        private long key;
+        private long counter;
+
+        Stream()
+        {
+            select(DEFAULT_SEED, 0, 0);
         }
-        else {
-            return new Random();
+
+        void select(long seed, long step, long id)
+        {
+            key = mix(mix(mix(seed) + step) + id);
+            counter = 0;
+        }
+
+        long nextLong()
+        {
+            counter++;
+            return mix(key + counter * GAMMA);
         }
     }
-    
+
     /**
-     * Reset the randomization.
-     * This will have no effect if randomization is not through
-     * a shared Random generator.
+     * A Random that draws from the calling thread's current stream. Setting
+     * its seed has no effect; select a stream instead.
      */
-    public static void reset()
+    private static class StreamRandom extends Random
     {
-        if(useShared) {
-            rand.setSeed(SEED);
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected int next(int bits)
+        {
+            return (int) (streams.get().nextLong() >>> (64 - bits));
+        }
+
+        @Override
+        public long nextLong()
+        {
+            return streams.get().nextLong();
+        }
+
+        @Override
+        public double nextDouble()
+        {
+            return (streams.get().nextLong() >>> 11) * 0x1.0p-53;
+        }
+
+        @Override
+        public boolean nextBoolean()
+        {
+            return streams.get().nextLong() < 0;
         }
     }
 }
@@ -0,0 +1,112 @@
+package com.company;
+
+import java.util.Arrays;
+
+/**
+ * Summarises one run of a simulation as it goes: for each species the
+ * step it died out at, and the mean and variance of its population over
+ * every step observed, kept with Welford's running method so nothing is
+ * stored per step.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class RunSummary implements SimulatorObserver
+{
+    private final long seed;
+    private final SimulationParameters parameters;
+    // The step each species died out at, by species ordinal, or -1.
+    private final int[] extinctionStep;
+    // The running mean and sum of squared deviations of each population.
+    private final double[] mean, squares;
+    // How many steps have been observed, and the last one.
+    private int samples, lastStep;
+
+    /**
+     * Create a summary of a run.
+     * @param seed The seed of the run.
+     * @param parameters The parameters of the run.
+     */
+    public RunSummary(long seed, SimulationParameters parameters)
+    {
+        this.seed = seed;
+        this.parameters = parameters;
+        int speciesCount = Species.values().length;
+        extinctionStep = new int[speciesCount];
+        Arrays.fill(extinctionStep, -1);
+        mean = new double[speciesCount];
+        squares = new double[speciesCount];
+    }
+
+    /**
+     * Take in the populations at the end of a step.
+     * @param step The step.
+     * @param field The field.
+     */
+    public void stepCompleted(int step, Field field)
+    {
+        samples++;
+        lastStep = step;
+        FieldStats stats = field.getStats();
+        for(Species species : Species.values()) {
+            int ordinal = species.ordinal();
+            int count = stats.getCount(species);
+            double delta = count - mean[ordinal];
+            mean[ordinal] += delta / samples;
+            squares[ordinal] += delta * (count - mean[ordinal]);
+            if(count == 0 && extinctionStep[ordinal] < 0) {
+                extinctionStep[ordinal] = step;
+            }
+        }
+    }
+
+    /**
+     * @return The seed of the run.
+     */
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * @return The parameters of the run.
+     */
+    public SimulationParameters getParameters()
+    {
+        return parameters;
+    }
+
+    /**
+     * @return The last step observed.
+     */
+    public int getLastStep()
+    {
+        return lastStep;
+    }
+
+    /**
+     * @param species A species.
+     * @return The first step at which none of it was left, or -1 if it survived.
+     */
+    public int getExtinctionStep(Species species)
+    {
+        return extinctionStep[species.ordinal()];
+    }
+
+    /**
+     * @param species A species.
+     * @return The mean of its population over the steps observed.
+     */
+    public double getMean(Species species)
+    {
+        return mean[species.ordinal()];
+    }
+
+    /**
+     * @param species A species.
+     * @return The variance of its population over the steps observed.
+     */
+    public double getVariance(Species species)
+    {
+        return samples > 1 ? squares[species.ordinal()] / (samples - 1) : 0;
+    }
+}
@@ -0,0 +1,183 @@
+package com.company;
+
+import java.util.Arrays;
+
+/**
+ * The tunable parameters of a simulation: how likely each species is to
+ * be placed in a cell when the field is populated, and how each species
+ * ages and breeds. Every simulation has its own set, held by its field,
+ * so simulations with different parameters can run side by side.
+ * A set must not be changed while a simulation is running with it.
+ *
+ * @author Nicholas Pezzotti
+ */
+public final class SimulationParameters
+{
+    /**
+     * The parameters each species has.
+     */
+    public enum Name
+    {
+        // The probability that an organism is created in any given grid position.
+        CREATION_PROBABILITY(false),
+        // The age at which an organism can start to breed.
+        BREEDING_AGE(true),
+        // The age to which an organism can live.
+        MAX_AGE(true),
+        // The likelihood of an organism breeding.
+        BREEDING_PROBABILITY(false),
+        // The maximum number of births.
+        MAX_LITTER_SIZE(true);
+
+        private final boolean whole;
+
+        Name(boolean whole)
+        {
+            this.whole = whole;
+        }
+
+        /**
+         * @return true if the parameter is a whole number.
+         */
+        public boolean isWhole()
+        {
+            return whole;
+        }
+    }
+
+    // Every parameter, indexed by name ordinal and then species ordinal.
+    private final double[][] values;
+
+    /**
+     * Create a set with every parameter zero.
+     */
+    private SimulationParameters()
+    {
+        values = new double[Name.values().length][Species.values().length];
+    }
+
+    /**
+     * @return A new set holding the parameters the simulation was designed with.
+     */
+    public static SimulationParameters defaults()
+    {
+        SimulationParameters parameters = new SimulationParameters();
+        parameters.setAll(Species.RABBIT, 0.20, 5, 25, 0.87, 6);
+        parameters.setAll(Species.FOX, 0.09, 8, 37, 0.350, 2);
+        parameters.setAll(Species.CROCODILE, 0.036, 15, 38, 0.30, 2);
+        parameters.setAll(Species.GRASS, 0.70, 1, 7, 0.2, 6);
+        parameters.setAll(Species.FISH, 0.2, 3, 10, 0.2, 10);
+        return parameters;
+    }
+
+    /**
+     * Set every parameter of a species.
+     */
+    private void setAll(Species species, double creationProbability, int breedingAge, int maxAge,
+                        double breedingProbability, int maxLitterSize)
+    {
+        set(species, Name.CREATION_PROBABILITY, creationProbability);
+        set(species, Name.BREEDING_AGE, breedingAge);
+        set(species, Name.MAX_AGE, maxAge);
+        set(species, Name.BREEDING_PROBABILITY, breedingProbability);
+        set(species, Name.MAX_LITTER_SIZE, maxLitterSize);
+    }
+
+    /**
+     * @return A new set holding the same parameters as this one.
+     */
+    public SimulationParameters copy()
+    {
+        SimulationParameters copy = new SimulationParameters();
+        for(int name = 0; name < values.length; name++) {
+            copy.values[name] = Arrays.copyOf(values[name], values[name].length);
+        }
+        return copy;
+    }
+
+    /**
+     * Change a parameter.
+     * @param species The species it applies to.
+     * @param name The parameter.
+     * @param value The new value.
+     * @throws IllegalArgumentException If the value is out of range for the parameter.
+     */
+    public void set(Species species, Name name, double value)
+    {
+        boolean valid;
+        switch(name) {
+            case CREATION_PROBABILITY:
+            case BREEDING_PROBABILITY:
+                valid = value >= 0 && value <= 1;
+                break;
+            case BREEDING_AGE:
+                valid = value >= 0;
+                break;
+            default:
+                valid = value >= 1;
+                break;
+        }
+        if(species == Species.GRASS && name == Name.MAX_AGE && value > Grass.MAX_AGE) {
+            valid = false;
+        }
+        if(!valid || (name.isWhole() && value != Math.rint(value))) {
+            throw new IllegalArgumentException("Invalid " + species + " " + name + ": " + value);
+        }
+        values[name.ordinal()][species.ordinal()] = value;
+    }
+
+    /**
+     * @param species A species.
+     * @param name A parameter.
+     * @return The value of the parameter for the species.
+     */
+    public double get(Species species, Name name)
+    {
+        return values[name.ordinal()][species.ordinal()];
+    }
+
+    /**
+     * @param species A species.
+     * @return The probability that it is created in any given grid position.
+     */
+    public double getCreationProbability(Species species)
+    {
+        return values[Name.CREATION_PROBABILITY.ordinal()][species.ordinal()];
+    }
+
+    /**
+     * @param species A species.
+     * @return The age at which it can start to breed.
+     */
+    public int getBreedingAge(Species species)
+    {
+        return (int) values[Name.BREEDING_AGE.ordinal()][species.ordinal()];
+    }
+
+    /**
+     * @param species A species.
+     * @return The age to which it can live.
+     */
+    public int getMaxAge(Species species)
+    {
+        return (int) values[Name.MAX_AGE.ordinal()][species.ordinal()];
+    }
+
+    /**
+     * @param species A species.
+     * @return The likelihood of it breeding.
+     */
+    public double getBreedingProbability(Species species)
+    {
+        return values[Name.BREEDING_PROBABILITY.ordinal()][species.ordinal()];
+    }
+
+    /**
+     * @param species A species.
+     * @return The maximum number of births.
+     */
+    public int getMaxLitterSize(Species species)
+    {
+        return (int) values[Name.MAX_LITTER_SIZE.ordinal()][species.ordinal()];
+    }
+}
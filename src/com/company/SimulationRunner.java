@@ -0,0 +1,167 @@
+package com.company;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a simulation on its own thread, so that the Swing thread is only
+ * ever used to draw. The run can be paused, advanced one step at a time
+ * and re-paced while it is going. None of these controls
+ * waits for the step that is running: they only leave a note for the
+ * simulation thread, which picks it up between steps.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class SimulationRunner implements Runnable
+{
+    private final Simulator simulator;
+    // The thread the simulation runs on, once started.
+    private volatile Thread worker;
+    private volatile boolean paused;
+    private volatile boolean stopped;
+    // Steps asked for while paused and not yet run.
+    private final AtomicInteger pendingSteps = new AtomicInteger();
+    // How many steps to run before finishing.
+    private int numSteps;
+
+    /**
+     * Create a runner for a simulation.
+     * @param simulator The simulation to run.
+     */
+    public SimulationRunner(Simulator simulator)
+    {
+        this.simulator = simulator;
+    }
+
+    /**
+     * Start running the simulation on a new thread.
+     * @param numSteps The most steps to run; the run also ends if the
+     *                 simulation ceases to be viable.
+     */
+    public void start(int numSteps)
+    {
+        this.numSteps = numSteps;
+        worker = new Thread(this, "simulation");
+        worker.start();
+    }
+
+    /**
+     * Wait for the run to finish.
+     */
+    public void join()
+    {
+        try {
+            worker.join();
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Run the simulation. Called on the simulation thread.
+     */
+    public void run()
+    {
+        int stepsRun = 0;
+        while(!stopped && stepsRun < numSteps && simulator.isViable()) {
+            if(paused && pendingSteps.get() == 0) {
+                LockSupport.park(this);
+                continue;
+            }
+            if(paused) {
+                // A step asked for by hand is always shown.
+                pendingSteps.decrementAndGet();
+                simulator.simulateOneStep();
+            }
+            else {
+                simulator.simulatePacedStep();
+                pace();
+            }
+            stepsRun++;
+        }
+    }
+
+    /**
+     * Wait until the governor lets the next step start. Any control
+     * wakes the wait early.
+     */
+    private void pace()
+    {
+        PacingGovernor governor = simulator.getGovernor();
+        long remaining;
+        while(!paused && !stopped && (remaining = governor.nanosUntilNextStep()) > 0) {
+            LockSupport.parkNanos(this, remaining);
+        }
+    }
+
+    /**
+     * Wake the simulation thread so it notices a control.
+     */
+    private void wake()
+    {
+        Thread thread = worker;
+        if(thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Pause the run after the current step.
+     */
+    public void pause()
+    {
+        paused = true;
+        wake();
+    }
+
+    /**
+     * Carry on after a pause.
+     */
+    public void resume()
+    {
+        pendingSteps.set(0);
+        paused = false;
+        wake();
+    }
+
+    /**
+     * @return Whether the run is paused.
+     */
+    public boolean isPaused()
+    {
+        return paused;
+    }
+
+    /**
+     * Run one more step while paused. Does nothing if the run is not paused.
+     */
+    public void step()
+    {
+        if(paused) {
+            pendingSteps.incrementAndGet();
+            wake();
+        }
+    }
+
+    /**
+     * Change how fast the run goes and how often it is shown.
+     * @param mode What to aim at.
+     * @param target Steps or frames per second; ignored when running as
+     *               fast as possible.
+     */
+    public void setPacing(PacingGovernor.Mode mode, double target)
+    {
+        simulator.setPacing(mode, target);
+        wake();
+    }
+
+    /**
+     * End the run after the current step.
+     */
+    public void stop()
+    {
+        stopped = true;
+        wake();
+    }
+}
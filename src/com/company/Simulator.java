@@ -1,12 +1,15 @@
 package com.company;
 
-import java.lang.reflect.InvocationTargetException;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Random;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.awt.Color;
-import java.util.HashMap; 
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.lang.reflect.InvocationTargetException;
+import javax.swing.SwingUtilities;
 
 /**
  * A simple predator-prey simulator, based on a rectangular field
@@ -21,23 +24,26 @@ public class Simulator
     private static final int DEFAULT_WIDTH = 120;
     // The default depth of the grid.
     private static final int DEFAULT_DEPTH = 80;
-    // The probability that a fox will be created in any given grid position.
-    private static final double FOX_CREATION_PROBABILITY = 0.09;
-    // The probability that a rabbit will be created in any given grid position.
-    private static final double RABBIT_CREATION_PROBABILITY = 0.20;
-    private static final double CROCODILE_CREATION_PROBABILITY = 0.036;
-    private static final double GRASS_CREATION_PROBABILITY = 0.70;
-    private static final double FISH_CREATION_PROBABILITY = 0.2;
-    private static final HashMap<Class, Double> creationProabilities = new HashMap<Class, Double>();
 
-    // List of animals in the field.
-    private List<Organism> organisms;
+    // The organisms in the field, bucketed by when they act.
+    private Population organisms;
     // The current state of the field.
     private Field field;
     // The current step of the simulation.
     private int step;
-    // A graphical view of the simulation.
+    // Everything that is told about every step of the simulation.
+    private List<SimulatorObserver> observers;
+    // The window showing the simulation, or null when headless. Unlike
+    // the observers it is not shown every step, but as the governor says.
     private SimulatorView view;
+    // Paces the steps and decides which are shown in the view.
+    private PacingGovernor governor;
+    // Scales every creation probability when the field is populated.
+    private double density;
+    // Runs each step, tile by tile, on one or more threads.
+    private TiledStepper stepper;
+    // The seed every random number in the simulation is derived from.
+    private long seed;
     
     private int depth, width;
     
@@ -50,11 +56,138 @@ public class Simulator
     }
     
     /**
-     * Create a simulation field with the given size.
+     * Create a simulation field with the given size, shown in a window.
      * @param depth Depth of the field. Must be greater than zero.
      * @param width Width of the field. Must be greater than zero.
      */
     public Simulator(int depth, int width)
+    {
+        this(depth, width, true);
+    }
+    
+    /**
+     * Create a simulation field with the given size.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param showView Whether to show the simulation in a window. Without
+     *                 a view the simulation runs headless and at full speed.
+     */
+    public Simulator(int depth, int width, boolean showView)
+    {
+        this(standardTerrain(depth, width), showView);
+    }
+    
+    /**
+     * Create a simulation field with the given terrain, as deep and wide as it.
+     * @param terrain Which cells of the field are water.
+     * @param showView Whether to show the simulation in a window. Without
+     *                 a view the simulation runs headless and at full speed.
+     */
+    public Simulator(Terrain terrain, boolean showView)
+    {
+        this(new Field(terrain), 1.0, showView);
+    }
+    
+    /**
+     * Run a simulation on the given field, such as a ChunkedField for a
+     * very large and mostly empty one.
+     * @param field The field, which is cleared and populated.
+     * @param density The factor every creation probability is multiplied by,
+     *                1.0 for the default population.
+     * @param showView Whether to show the simulation in a window.
+     */
+    public Simulator(Field field, double density, boolean showView)
+    {
+        this(field, showView, null, density, Randomizer.DEFAULT_SEED);
+    }
+    
+    /**
+     * Run a simulation with the given parameters and seed, populating the
+     * field once with them.
+     * @param field The field, which is cleared and populated.
+     * @param parameters The parameters; not to be changed while the simulation uses them.
+     * @param seed The seed every random number is derived from.
+     * @param density The factor every creation probability is multiplied by,
+     *                1.0 for the default population.
+     * @param showView Whether to show the simulation in a window.
+     */
+    public Simulator(Field field, SimulationParameters parameters, long seed, double density, boolean showView)
+    {
+        this(withParameters(field, parameters), showView, null, density, seed);
+    }
+    
+    /**
+     * Create a simulation on the given field, and either populate it
+     * or restore it from a checkpoint.
+     * @param field The field.
+     * @param showView Whether to show the simulation in a window.
+     * @param checkpoint The checkpoint to restore, or null to populate the field.
+     * @param density The density to populate the field at.
+     * @param seed The seed to populate the field with; a checkpoint has its own.
+     */
+    private Simulator(Field field, boolean showView, Checkpoint checkpoint, double density, long seed)
+    {
+        this.density = density;
+        this.seed = seed;
+        organisms = new Population();
+        observers = new ArrayList<>();
+        this.width = field.getWidth();
+        this.depth = field.getDepth();
+        this.field = field;
+
+        stepper = new TiledStepper(field, 1, TiledStepper.DEFAULT_TILE_SIZE);
+
+        if(showView) {
+            view = createView();
+            governor = new PacingGovernor(PacingGovernor.Mode.STEPS_PER_SECOND,
+                                          PacingGovernor.DEFAULT_STEPS_PER_SECOND);
+        }
+        else {
+            governor = new PacingGovernor(PacingGovernor.Mode.AS_FAST_AS_POSSIBLE, 0);
+        }
+
+        // Setup a valid starting point.
+        if(checkpoint == null) {
+            reset();
+        }
+        else {
+            restore(checkpoint);
+        }
+    }
+    
+    /**
+     * Create a simulation that carries on from a checkpoint file.
+     * @param path The checkpoint file.
+     * @param showView Whether to show the simulation in a window.
+     * @return The simulation, at the step it was saved at.
+     * @throws IOException If the file cannot be read or is not a checkpoint.
+     */
+    public static Simulator fromCheckpoint(Path path, boolean showView) throws IOException
+    {
+        Checkpoint checkpoint = Checkpoint.read(path);
+        return new Simulator(new Field(checkpoint.getTerrain()), showView, checkpoint, 1.0, checkpoint.getSeed());
+    }
+    
+    /**
+     * Give a field its parameters, before a simulation is created on it.
+     * @param field The field.
+     * @param parameters The parameters.
+     * @return The field.
+     */
+    private static Field withParameters(Field field, SimulationParameters parameters)
+    {
+        field.setParameters(parameters);
+        return field;
+    }
+    
+    /**
+     * Build the standard terrain for a field, falling back to the default
+     * size if the one given is not valid.
+     * @param depth Depth of the field.
+     * @param width Width of the field.
+     * @return The terrain.
+     */
+    private static Terrain standardTerrain(int depth, int width)
     {
         if(width <= 0 || depth <= 0) {
             System.out.println("The dimensions must be greater than zero.");
@@ -62,140 +195,354 @@ public class Simulator
             depth = DEFAULT_DEPTH;
             width = DEFAULT_WIDTH;
         }
-        
-        organisms = new ArrayList<>();
-        this.width = width;
-        this.depth = depth;
-        field = new Field(depth, width);
-
-        // Create a view of the state of each location in the field.
-        view = new SimulatorView(depth, width, field );
-        view.setColor(Rabbit.class, Color.MAGENTA);
-        view.setColor(Fox.class, Color.GRAY);
-        view.setColor(Crocodile.class, Color.RED);
-        view.setColor(Grass.class, Color.GREEN.darker());
-        view.setColor(Fish.class, Color.ORANGE);
-        
-        creationProabilities.put(Rabbit.class, RABBIT_CREATION_PROBABILITY);
-        creationProabilities.put(Fox.class, FOX_CREATION_PROBABILITY);
-        creationProabilities.put(Crocodile.class, CROCODILE_CREATION_PROBABILITY);
-        creationProabilities.put(Grass.class, GRASS_CREATION_PROBABILITY);
-        creationProabilities.put(Fish.class, FISH_CREATION_PROBABILITY);
-        // Setup a valid starting point.
-        reset();
+        return Terrain.standard(depth, width);
+    }
+    
+    /**
+     * Create a window showing the state of each location in the field.
+     * The window is built, colored and shown on the Swing thread.
+     * @return The view, with a color defined for every species.
+     */
+    private SimulatorView createView()
+    {
+        AtomicReference<SimulatorView> created = new AtomicReference<>();
+        Runnable build = () -> {
+            SimulatorView view = new SimulatorView(depth, width, field);
+            view.setColor(Rabbit.class, Color.MAGENTA);
+            view.setColor(Fox.class, Color.GRAY);
+            view.setColor(Crocodile.class, Color.RED);
+            view.setColor(Grass.class, Color.GREEN.darker());
+            view.setColor(Fish.class, Color.ORANGE);
+            view.setVisible(true);
+            created.set(view);
+        };
+        if(SwingUtilities.isEventDispatchThread()) {
+            build.run();
+        }
+        else {
+            try {
+                SwingUtilities.invokeAndWait(build);
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while opening the view", e);
+            }
+            catch(InvocationTargetException e) {
+                throw new IllegalStateException("Cannot open the view", e.getCause());
+            }
+        }
+        return created.get();
+    }
+    
+    /**
+     * Register an observer to be told about every completed step.
+     * @param observer The observer to add.
+     */
+    public void addObserver(SimulatorObserver observer)
+    {
+        observers.add(observer);
+    }
+    
+    /**
+     * Choose how fast the simulation runs and how often the view is shown.
+     * May be called while it runs.
+     * @param mode What to aim at.
+     * @param target Steps or frames per second; ignored when running as
+     *               fast as possible.
+     */
+    public void setPacing(PacingGovernor.Mode mode, double target)
+    {
+        governor.setPacing(mode, target);
+    }
+    
+    /**
+     * @return The governor pacing the simulation.
+     */
+    public PacingGovernor getGovernor()
+    {
+        return governor;
+    }
+    
+    /**
+     * Scale how crowded the field is when it is next populated.
+     * @param density The factor every creation probability is multiplied by,
+     *                1.0 for the default population.
+     */
+    public void setDensity(double density)
+    {
+        this.density = density;
+    }
+    
+    /**
+     * Set the parameters the field is populated, and its organisms age
+     * and breed, by. They take effect at once for ageing and breeding,
+     * so call reset() to also populate the field with them.
+     * @param parameters The parameters; not to be changed while the simulation uses them.
+     */
+    public void setParameters(SimulationParameters parameters)
+    {
+        field.setParameters(parameters);
+    }
+    
+    /**
+     * @return The parameters the simulation runs with.
+     */
+    public SimulationParameters getParameters()
+    {
+        return field.getParameters();
+    }
+    
+    /**
+     * Choose how many threads each step runs on. The outcome of the
+     * simulation does not depend on it.
+     * @param threads The number of threads, 1 to step on the calling thread.
+     */
+    public void setParallelism(int threads)
+    {
+        stepper.shutdown();
+        stepper = new TiledStepper(field, threads, TiledStepper.DEFAULT_TILE_SIZE);
+    }
+    
+    /**
+     * Set the seed every random number is derived from. It takes effect
+     * from the next reset, so call reset() to restart with it.
+     * @param seed The seed.
+     */
+    public void setSeed(long seed)
+    {
+        this.seed = seed;
+    }
+    
+    /**
+     * @return The seed every random number is derived from.
+     */
+    public long getSeed()
+    {
+        return seed;
     }
     
     /**
      * Run the simulation from its current state for a reasonably long period,
-     * (4000 steps).
+     * (4000 steps). With a view, the steps run on a thread of their own,
+     * controlled from the view, and this waits for them to finish.
      */
     public void runLongSimulation()
     {
-        simulate(4000);
+        if(view == null) {
+            simulate(4000);
+            return;
+        }
+        SimulationRunner runner = new SimulationRunner(this);
+        SwingUtilities.invokeLater(() -> view.setRunner(runner));
+        runner.start(4000);
+        runner.join();
     }
     
     /**
      * Run the simulation from its current state for the given number of steps.
      * Stop before the given number of steps if it ceases to be viable.
      * @param numSteps The number of steps to run for.
+     * @return The number of steps actually run.
      */
-    private void simulate(int numSteps)
+    public int simulate(int numSteps)
     {
-        for(int step = 1; step <= numSteps && view.isViable(field); step++) {
-            simulateOneStep();
-            delay(60);// uncomment this to run more slowly
+        int stepsRun = 0;
+        for(int step = 1; step <= numSteps && isViable(); step++) {
+            simulatePacedStep();
+            stepsRun++;
+            long wait;
+            while((wait = governor.nanosUntilNextStep()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+        return stepsRun;
+    }
+    
+    /**
+     * Determine whether the simulation should continue to run.
+     * @return true If there is more than one species alive.
+     */
+    public boolean isViable()
+    {
+        return field.getStats().isViable();
+    }
+    
+    /**
+     * @return The current step of the simulation.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+    
+    /**
+     * @return The field the simulation runs on.
+     */
+    public Field getField()
+    {
+        return field;
+    }
+    
+    /**
+     * Run the simulation from its current state for a single step, and
+     * show it in the view.
+     */
+    public void simulateOneStep()
+    {
+        advance();
+        render();
+    }
+    
+    /**
+     * Run the simulation from its current state for a single step, and
+     * show it in the view if the governor says so. The caller waits for
+     * the governor before the next step.
+     */
+    public void simulatePacedStep()
+    {
+        governor.stepStarted();
+        advance();
+        if(view != null && governor.shouldRender()) {
+            long renderStart = System.nanoTime();
+            render();
+            governor.rendered(renderStart);
         }
     }
     
     /**
-     * Run the simulation from its current state for a single step.
      * Iterate over the whole field updating the state of each
-     * organism.
+     * organism, then tell the observers.
      */
-    private void simulateOneStep()
+    private void advance()
     {
         step++;
         
+        Randomizer.select(seed, step, Randomizer.WEATHER_STREAM);
         field.incrementTime(); 
 
-        // Provide space for newborn animals.
-        List<Organism> newOrganisms = new ArrayList<>();
-        // Let all organisms act.
-        for(Iterator<Organism> it = organisms.iterator(); it.hasNext(); ) {
-            Organism organism = it.next();
-            organism.nextStep(newOrganisms);
-            if(! organism.isAlive()) {
-                it.remove();
-            }
-        }
-               
-        // Add the newly born foxes and rabbits to the main lists.
-        organisms.addAll(newOrganisms);
+        stepper.step(organisms, seed, step);
 
-        view.showStatus(step, field);
+        long start = StepMetrics.ENABLED ? StepMetrics.get().start() : 0;
+        notifyObservers();
+        if(StepMetrics.ENABLED) {
+            StepMetrics.get().record(StepMetrics.Phase.STATS, start);
+            StepMetrics.get().stepCompleted(organisms.size());
+        }
     }
         
     /**
      * Reset the simulation to a starting position.
      */
-    private void reset()
+    public void reset()
     {
         step = 0;
         organisms.clear();
+        field.resetTime();
         populate();
         
         // Show the starting state in the view.
-        view.showStatus(step, field);
+        notifyObservers();
+        render();
+    }
+    
+    /**
+     * Show the current step in the view, if there is one.
+     */
+    private void render()
+    {
+        if(view != null) {
+            long start = StepMetrics.ENABLED ? StepMetrics.get().start() : 0;
+            view.stepCompleted(step, field);
+            if(StepMetrics.ENABLED) {
+                StepMetrics.get().record(StepMetrics.Phase.RENDER, start);
+            }
+        }
+    }
+    
+    /**
+     * Save the simulation to a checkpoint file.
+     * @param path The file to write; it is replaced if it exists.
+     * @throws IOException If the file cannot be written.
+     */
+    public void saveCheckpoint(Path path) throws IOException
+    {
+        Checkpoint.write(path, field, organisms, seed, step);
+    }
+    
+    /**
+     * Put the simulation back in the state saved in a checkpoint, with
+     * the parameters it saved, if it is recent enough to have saved them.
+     * The field keeps its own terrain, so use fromCheckpoint for a
+     * checkpoint saved from a field of another shape.
+     * @param checkpoint The checkpoint.
+     */
+    public void restore(Checkpoint checkpoint)
+    {
+        Terrain terrain = checkpoint.getTerrain();
+        if(terrain.getDepth() != depth || terrain.getWidth() != width) {
+            throw new IllegalArgumentException("The checkpoint is of a " + terrain.getDepth() + "x"
+                + terrain.getWidth() + " field, not " + depth + "x" + width);
+        }
+        seed = checkpoint.getSeed();
+        step = checkpoint.getStep();
+        organisms.clear();
+        checkpoint.restoreInto(field, organisms);
+        
+        notifyObservers();
+        render();
+    }
+    
+    /**
+     * Tell every observer that the current step has completed.
+     */
+    private void notifyObservers()
+    {
+        for(SimulatorObserver observer : observers) {
+            observer.stepCompleted(step, field);
+        }
     }
 
     /**
-     * Spawns an anonymous object of type c (class of type Organism that we want to instantiate) at a given row and
-     * column of the board.
-     * @param inWater Specifies if the location has to be water
-     * @param c The data-type of the Organism to instantiate
+     * Spawns an organism of the given species at a given row and column of the board,
+     * or grows grass there, with a random age.
+     * @param species The species of the organism to create
      * @param row The row in which we want to spawn the organism
      * @param col The col in which we want to spawn the organism
      */
-    private void spawnAnimal(boolean inWater, Class c, int row, int col, boolean isSick) {
-        try {
-            Organism organism = (Organism) c.getConstructor(boolean.class, Field.class, Location.class, boolean.class).newInstance(true, field, new Location(row, col), false);//requires bool
-            organisms.add(organism);
-        } catch (InstantiationException e) {
-            e.printStackTrace();
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
-        } catch (InvocationTargetException e) {
-            e.printStackTrace();
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
+    private void spawn(Species species, int row, int col) {
+        if (species == Species.GRASS) {
+            int maxAge = field.getParameters().getMaxAge(species);
+            field.plantGrass(row * field.getWidth() + col, Randomizer.getRandom().nextInt(maxAge), false);
+        }
+        else {
+            organisms.add(field.getPool().obtain(species, true, field, field.getLocation(row, col), false));
         }
     }
 
     /**
-     * Randomly populate the field with all types of organisms
+     * Randomly populate the field with all types of organisms.
+     * Each cell of a Field draws from a stream of its own whether each
+     * species is created in it. A ChunkedField, which may be too large
+     * to visit every cell of, is populated sparsely instead.
      */
     private void populate()
     {
         Random rand = Randomizer.getRandom();
+        SimulationParameters parameters = field.getParameters();
         field.clear();
+        if(field instanceof ChunkedField) {
+            populateSparsely();
+            return;
+        }
 
         for(int row = 0; row < field.getDepth(); row++) {
             for(int col = 0; col < field.getWidth(); col++) {
-                if(field.isWater(row, col)) {
-                    for (Class c : creationProabilities.keySet()) {
-                        if (WaterAnimal.class.isAssignableFrom(c) || Amphibian.class.isAssignableFrom(c)) {
-                            if (rand.nextDouble() <= creationProabilities.get(c)) {
-                                spawnAnimal(true, c, row, col, false);
-                            }
-                        }
-                    }
-                }
-                else { //if it's land
-                    for (Class c : creationProabilities.keySet()) {
-                        if (GroundAnimal.class.isAssignableFrom(c) || Amphibian.class.isAssignableFrom(c) || Plant.class.isAssignableFrom(c)) {
-                            if (rand.nextDouble() <= creationProabilities.get(c)) {
-                                spawnAnimal(false, c, row, col, false);
-                            }
+                Randomizer.select(seed, Randomizer.POPULATE_STEP, row * field.getWidth() + col);
+                boolean water = field.isWater(row, col);
+                for (Species species : Species.values()) {
+                    if (livesIn(species, water)) {
+                        if (rand.nextDouble() <= parameters.getCreationProbability(species) * density) {
+                            spawn(species, row, col);
                         }
                     }
                 }
@@ -203,19 +550,57 @@ public class Simulator
             }
         }
     }
-    
 
     /**
-     * Pause for a given time.
-     * @param millisec  The time to pause for, in milliseconds
+     * Randomly populate the field with all types of organisms, at the same
+     * density as populate() but without visiting every cell. Each species
+     * draws from a stream of its own the gaps between the cells it is
+     * created in, and cells of the wrong territory are passed over, so the
+     * cost follows the number of organisms rather than the size of the
+     * field. The streams differ from those of the cells, so the same seed
+     * populates a ChunkedField differently from a Field.
      */
-    private void delay(int millisec)
+    private void populateSparsely()
     {
-        try {
-            Thread.sleep(millisec);
+        Random rand = Randomizer.getRandom();
+        SimulationParameters parameters = field.getParameters();
+        long cellCount = (long) depth * width;
+        for (Species species : Species.values()) {
+            double probability = Math.min(parameters.getCreationProbability(species) * density, 1.0);
+            if (probability <= 0) {
+                continue;
+            }
+            // Keyed below the cells' streams, which start at 0.
+            Randomizer.select(seed, Randomizer.POPULATE_STEP, -1 - species.ordinal());
+            double logMiss = Math.log1p(-probability);
+            long index = -1;
+            while (true) {
+                // How many cells to pass over before the next one the species is created in.
+                double gap = probability == 1.0 ? 0 : Math.floor(Math.log1p(-rand.nextDouble()) / logMiss);
+                if (gap >= cellCount - index - 1) {
+                    break;
+                }
+                index += 1 + (long) gap;
+                int row = (int) (index / width);
+                int col = (int) (index % width);
+                if (livesIn(species, field.isWater(row, col))) {
+                    spawn(species, row, col);
+                }
+            }
         }
-        catch (InterruptedException ie) {
-            // wake up
+    }
+
+    /**
+     * @param species A species.
+     * @param water Whether a cell is water.
+     * @return Whether the species is created in such a cell when populating.
+     */
+    private static boolean livesIn(Species species, boolean water)
+    {
+        Class c = species.getOrganismClass();
+        if (Amphibian.class.isAssignableFrom(c)) {
+            return true;
         }
+        return water ? WaterAnimal.class.isAssignableFrom(c) : GroundAnimal.class.isAssignableFrom(c) || c == Grass.class;
     }
 }
@@ -0,0 +1,18 @@
+package com.company;
+
+/**
+ * Something that wants to be told about the progress of a simulation,
+ * such as a graphical view or a statistics recorder. Observers are
+ * optional: a Simulator without any runs headless.
+ *
+ * @author Nicholas Pezzotti
+ */
+public interface SimulatorObserver
+{
+    /**
+     * Called after the simulation has been reset or has completed a step.
+     * @param step The step that has just completed (0 after a reset).
+     * @param field The field in its state at the end of that step.
+     */
+    void stepCompleted(int step, Field field);
+}
@@ -2,9 +2,12 @@ package com.company;
 
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import javax.swing.*;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import javax.swing.event.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A graphical view of the simulation grid.
@@ -12,10 +15,13 @@ import java.util.Map;
  * representing its contents. It uses a default background color.
  * Colors for each type of species can be defined using the
  * setColor method.
+ * The simulation thread only takes a FrameSnapshot of each step and
+ * hands it over; the Swing thread draws the latest one it has been given,
+ * so frames that arrive faster than they can be drawn are dropped.
  * 
  * @author Nicholas Pezzotti
  */
-public class SimulatorView extends JFrame
+public class SimulatorView extends JFrame implements SimulatorObserver
 {
     // Colors used for empty locations.
     private static final Color EMPTY_COLOR = Color.white;
@@ -23,29 +29,46 @@ public class SimulatorView extends JFrame
     // Color used for objects that have no defined color.
     private static final Color UNKNOWN_COLOR = Color.gray;
 
+    // Color used for empty water.
+    private static final Color WATER_COLOR = Color.blue;
+
     private final String STEP_PREFIX = "Step: ";
     private final String POPULATION_PREFIX = "Population: ";
     private final String TIME_PREFIX = "Time of Day: ";
     private final String WEATHER_PREFIX = "Weather: ";
-    private JLabel stepLabel, population, infoLabel, timeLabel, dayLabel, weatherLabel;
+    // The highest rate the rate slider offers, in steps or frames per second.
+    private static final int MAX_RATE = 100;
+    private JLabel stepLabel, population, infoLabel, timeLabel, dayLabel, weatherLabel, speedLabel;
+    private JButton pauseButton, stepButton;
+    private JComboBox<PacingGovernor.Mode> paceBox;
+    private JSlider speedSlider;
     private FieldView fieldView;
-    // A map for storing colors for participants in the simulation
-    private Map<Class, Color> colors;
-    // A statistics object computing and storing simulation information
-    private FieldStats stats;
+    // The packed RGB color of every FrameSnapshot cell code.
+    private int[] palette;
+    // The newest frame not yet drawn, or null.
+    private final AtomicReference<FrameSnapshot> latestFrame = new AtomicReference<>();
+    // Whether the Swing thread has been asked to draw and not yet started.
+    private final AtomicBoolean drawPending = new AtomicBoolean();
+    // The run the controls act on, if any.
+    private SimulationRunner runner;
     //private Simulator simulator; 
     private Field field; 
     private WeatherType currentWeather;
     
     /**
-     * Create a view of the given width and height.
+     * Create a view of the given width and height, not yet visible.
+     * Call on the Swing thread, and define the colors before showing it.
      * @param height The simulation's height.
      * @param width  The simulation's width.
      */
     public SimulatorView(int height, int width, Field field)
     {
-        stats = new FieldStats();
-        colors = new LinkedHashMap<>();
+        palette = new int[FrameSnapshot.CODE_COUNT];
+        palette[FrameSnapshot.EMPTY] = EMPTY_COLOR.getRGB();
+        palette[FrameSnapshot.WATER] = WATER_COLOR.getRGB();
+        for(Species species : Species.values()) {
+            setPaletteEntry(species, UNKNOWN_COLOR);
+        }
         this.field = field; 
 
         setTitle("Rain Forest");
@@ -72,19 +95,106 @@ public class SimulatorView extends JFrame
             //infoPane.add(infoLabel, BorderLayout.CENTER);
         contents.add(infoPane, BorderLayout.NORTH);
         contents.add(fieldView, BorderLayout.CENTER);
-        contents.add(population, BorderLayout.SOUTH);
+        contents.add(createControlPane(), BorderLayout.SOUTH);
         pack();
-        setVisible(true);
     }
     
+    /**
+     * Lay out the population line and the run controls, which stay
+     * disabled until a runner is attached.
+     * @return The panel holding them.
+     */
+    private JPanel createControlPane()
+    {
+        pauseButton = new JButton("Pause");
+        pauseButton.addActionListener(e -> togglePause());
+        stepButton = new JButton("Step");
+        stepButton.addActionListener(e -> runner.step());
+        paceBox = new JComboBox<>(PacingGovernor.Mode.values());
+        paceBox.addActionListener(e -> changePacing());
+        int speed = (int) Math.round(PacingGovernor.DEFAULT_STEPS_PER_SECOND);
+        speedSlider = new JSlider(1, MAX_RATE, speed);
+        speedLabel = new JLabel(String.valueOf(speed));
+        speedSlider.addChangeListener(e -> changePacing());
+        pauseButton.setEnabled(false);
+        stepButton.setEnabled(false);
+        paceBox.setEnabled(false);
+        speedSlider.setEnabled(false);
+
+        JPanel controls = new JPanel();
+            controls.add(pauseButton);
+            controls.add(stepButton);
+            controls.add(paceBox);
+            controls.add(speedSlider);
+            controls.add(speedLabel);
+        JPanel controlPane = new JPanel(new BorderLayout());
+            controlPane.add(population, BorderLayout.CENTER);
+            controlPane.add(controls, BorderLayout.EAST);
+        return controlPane;
+    }
+
+    /**
+     * Let the controls drive a run. Call on the Swing thread.
+     * @param runner The run to control.
+     */
+    public void setRunner(SimulationRunner runner)
+    {
+        this.runner = runner;
+        pauseButton.setEnabled(true);
+        stepButton.setEnabled(runner.isPaused());
+        paceBox.setEnabled(true);
+        changePacing();
+    }
+
+    /**
+     * Pause the run if it is going, otherwise carry on with it.
+     */
+    private void togglePause()
+    {
+        if(runner.isPaused()) {
+            runner.resume();
+        }
+        else {
+            runner.pause();
+        }
+        pauseButton.setText(runner.isPaused() ? "Resume" : "Pause");
+        stepButton.setEnabled(runner.isPaused());
+    }
+
+    /**
+     * Pass the chosen pacing and the rate slider's value on to the run.
+     */
+    private void changePacing()
+    {
+        PacingGovernor.Mode mode = (PacingGovernor.Mode) paceBox.getSelectedItem();
+        boolean hasRate = mode != PacingGovernor.Mode.AS_FAST_AS_POSSIBLE;
+        speedSlider.setEnabled(hasRate);
+        speedLabel.setText(hasRate ? String.valueOf(speedSlider.getValue()) : " ");
+        if(runner != null) {
+            runner.setPacing(mode, speedSlider.getValue());
+        }
+    }
+
     /**
      * Define a color to be used for a given class of animal.
+     * Call on the Swing thread before the view is shown.
      * @param animalClass The animal's Class object.
      * @param color The color to be used for the given class.
      */
     public void setColor(Class animalClass, Color color)
     {
-        colors.put(animalClass, color);
+        setPaletteEntry(Species.of(animalClass), color);
+    }
+
+    /**
+     * Put the colors of a species, and of its sick members, in the palette.
+     * @param species The species.
+     * @param color The color of its healthy members.
+     */
+    private void setPaletteEntry(Species species, Color color)
+    {
+        palette[FrameSnapshot.codeOf(species, false)] = color.getRGB();
+        palette[FrameSnapshot.codeOf(species, true)] = color.darker().getRGB();
     }
 
     /**
@@ -96,72 +206,54 @@ public class SimulatorView extends JFrame
     }
 
     /**
-     * @return The color to be used for a given class of animal.
+     * Take a snapshot of the field each time the simulation completes a
+     * step, and have it drawn. Called on the simulation thread.
+     * @param step Which iteration step it is.
+     * @param field The field whose status is to be displayed.
      */
-    private Color getColor(Class animalClass)
+    public void stepCompleted(int step, Field field)
     {
-        Color col = colors.get(animalClass);
-        if(col == null) {
-            // no color defined for this class
-            return UNKNOWN_COLOR;
+        latestFrame.set(FrameSnapshot.capture(step, field));
+        if(drawPending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::showLatestFrame);
         }
-        else {
-            return col;
+    }
+
+    /**
+     * Draw the newest frame handed over. Called on the Swing thread.
+     */
+    private void showLatestFrame()
+    {
+        // Clear the flag first, so a frame handed over from now on is drawn too.
+        drawPending.set(false);
+        FrameSnapshot frame = latestFrame.getAndSet(null);
+        if(frame != null) {
+            showStatus(frame);
         }
     }
 
     /**
-     * Show the current status of the field.
-     * @param step Which iteration step it is.
-     * @param field The field whose status is to be displayed.
+     * Show the status of the field in a snapshot.
+     * @param frame The snapshot to display.
      */
-    public void showStatus(int step, Field field)
+    private void showStatus(FrameSnapshot frame)
     {
         if(!isVisible()) {
             setVisible(true);
         }
             
-        stepLabel.setText(STEP_PREFIX + step);
-        timeLabel.setText(TIME_PREFIX + field.getTimeOfDayString());
-        weatherLabel.setText(WEATHER_PREFIX + field.getCurrentWeather()); 
-        stats.reset();
-        
-        fieldView.preparePaint();
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                Object animal = field.getObjectAt(row, col); 
-                if(animal != null) {
-                    stats.incrementCount(animal.getClass());
-                    if (((Organism) animal).isSick()) {
-                        fieldView.drawMark(col, row, getColor(animal.getClass()).darker());
-                    }
-                    else {
-                        fieldView.drawMark(col, row, getColor(animal.getClass()));
-                    }
-                } 
-                else if (field.isWater(row, col)) {
-                    fieldView.drawMark(col, row, Color.blue);
-                }
-                else {
-                    fieldView.drawMark(col, row, EMPTY_COLOR);
-                }
-            }
+        stepLabel.setText(STEP_PREFIX + frame.getStep());
+        timeLabel.setText(TIME_PREFIX + frame.getTimeOfDay());
+        weatherLabel.setText(WEATHER_PREFIX + frame.getWeather()); 
+        // Write a pixel per cell, walking the cells in index order, row * width + col.
+        int[] pixels = fieldView.getPixels();
+        for(int index = 0; index < pixels.length; index++) {
+            pixels[index] = palette[frame.getCode(index)];
         }
-        stats.countFinished();
-
-        population.setText(POPULATION_PREFIX + stats.getPopulationDetails(field));
+        population.setText(POPULATION_PREFIX + frame.getPopulation());
         fieldView.repaint();
     }
 
-    /**
-     * Determine whether the simulation should continue to run.
-     * @return true If there is more than one species alive.
-     */
-    public boolean isViable(Field field)
-    {
-        return stats.isViable(field);
-    }
-    
     /**
      * Provide a graphical view of a rectangular field. This is 
      * a nested class (a class defined inside a class) which
@@ -175,10 +267,9 @@ public class SimulatorView extends JFrame
         private final int GRID_VIEW_SCALING_FACTOR = 6;
 
         private int gridWidth, gridHeight;
-        private int xScale, yScale;
-        Dimension size;
-        private Graphics g;
-        private Image fieldImage;
+        // One pixel per cell, scaled up to the size of the component when painted.
+        private BufferedImage fieldImage;
+        private int[] pixels;
 
         /**
          * Create a new FieldView component.
@@ -187,7 +278,8 @@ public class SimulatorView extends JFrame
         {
             gridHeight = height;
             gridWidth = width;
-            size = new Dimension(0, 0);
+            fieldImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) fieldImage.getRaster().getDataBuffer()).getData();
         }
 
         /**
@@ -200,52 +292,22 @@ public class SimulatorView extends JFrame
         }
 
         /**
-         * Prepare for a new round of painting. Since the component
-         * may be resized, compute the scaling factor again.
-         */
-        public void preparePaint()
-        {
-            if(! size.equals(getSize())) {  // if the size has changed...
-                size = getSize();
-                fieldImage = fieldView.createImage(size.width, size.height);
-                g = fieldImage.getGraphics();
-
-                xScale = size.width / gridWidth;
-                if(xScale < 1) {
-                    xScale = GRID_VIEW_SCALING_FACTOR;
-                }
-                yScale = size.height / gridHeight;
-                if(yScale < 1) {
-                    yScale = GRID_VIEW_SCALING_FACTOR;
-                }
-            }
-        }
-        
-        /**
-         * Paint on grid location on this field in a given color.
+         * @return The packed RGB pixels of the field image, one per cell,
+         * indexed by row * width + col.
          */
-        public void drawMark(int x, int y, Color color)
+        public int[] getPixels()
         {
-            g.setColor(color);
-            g.fillRect(x * xScale, y * yScale, xScale-1, yScale-1);
+            return pixels;
         }
 
         /**
-         * The field view component needs to be redisplayed. Copy the
-         * internal image to screen.
+         * The field view component needs to be redisplayed. Scale the
+         * field image, one pixel per cell, to the size of the component.
          */
         public void paintComponent(Graphics g)
         {
-            if(fieldImage != null) {
-                Dimension currentSize = getSize();
-                if(size.equals(currentSize)) {
-                    g.drawImage(fieldImage, 0, 0, null);
-                }
-                else {
-                    // Rescale the previous image.
-                    g.drawImage(fieldImage, 0, 0, currentSize.width, currentSize.height, null);
-                }
-            }
+            Dimension currentSize = getSize();
+            g.drawImage(fieldImage, 0, 0, currentSize.width, currentSize.height, null);
         }
     }
 }
@@ -0,0 +1,135 @@
+package com.company;
+
+/**
+ * The species that can live in the simulation, each bound to the
+ * constructor that creates its organisms. Creating an organism through
+ * its species is a plain constructor call, with no reflection. Grass is
+ * not made of organisms: it lives in the field's Grass layer.
+ *
+ * Each species also has a small id, which the field keeps for every cell
+ * so that neighbours can be told apart without touching the organisms,
+ * and a bit, so that a set of species fits in one int.
+ *
+ * @author Nicholas Pezzotti
+ */
+public enum Species
+{
+    RABBIT(Rabbit.class, Rabbit::new),
+    FOX(Fox.class, Fox::new),
+    CROCODILE(Crocodile.class, Crocodile::new),
+    GRASS(Grass.class, null),
+    FISH(Fish.class, Fish::new);
+
+    /**
+     * Creates an organism of one species. Every species has a
+     * constructor with these parameters.
+     */
+    @FunctionalInterface
+    public interface Factory
+    {
+        Organism create(boolean randomAge, Field field, Location location, boolean isSick);
+    }
+
+    // The id of an empty cell.
+    public static final int NONE = 0;
+
+    private final Class<?> organismClass;
+    private final Factory factory;
+
+    /**
+     * @param organismClass the class of the species' organisms, or of the layer it lives in
+     * @param factory the constructor of that class, or null for a species that lives in a layer
+     */
+    Species(Class<?> organismClass, Factory factory)
+    {
+        this.organismClass = organismClass;
+        this.factory = factory;
+    }
+
+    /**
+     * @return the class of this species' organisms, or of the layer it lives in
+     */
+    public Class<?> getOrganismClass()
+    {
+        return organismClass;
+    }
+
+    /**
+     * @return the small id of this species, never NONE, as kept for each cell
+     */
+    public int getId()
+    {
+        return ordinal() + 1;
+    }
+
+    /**
+     * @return the bit standing for this species in a mask of species
+     */
+    public int getBit()
+    {
+        return 1 << getId();
+    }
+
+    /**
+     * @param id the id of a species, or NONE
+     * @return the bit standing for that species in a mask, or 0 for NONE
+     */
+    public static int bitOf(int id)
+    {
+        return id == NONE ? 0 : 1 << id;
+    }
+
+    /**
+     * @param organismClasses classes of organisms, or of layers
+     * @return the mask of their species
+     */
+    public static int maskOf(Class<?>... organismClasses)
+    {
+        int mask = 0;
+        for (Class<?> organismClass : organismClasses) {
+            mask |= of(organismClass).getBit();
+        }
+        return mask;
+    }
+
+    /**
+     * @return whether the species lives in a layer of the field rather than as organisms
+     */
+    public boolean isLayer()
+    {
+        return factory == null;
+    }
+
+    /**
+     * Creates an organism of this species and places it in the field.
+     * @param randomAge whether to give it a random age, as when populating the field
+     * @param field the field the organism lives in
+     * @param location its location in the field
+     * @param isSick whether it is sick
+     * @return the new organism
+     * @throws IllegalStateException if the species lives in a layer
+     */
+    public Organism create(boolean randomAge, Field field, Location location, boolean isSick)
+    {
+        if (factory == null) {
+            throw new IllegalStateException(this + " lives in a layer, not as organisms");
+        }
+        return factory.create(randomAge, field, location, isSick);
+    }
+
+    /**
+     * Finds the species of a class of organisms.
+     * @param organismClass the class to look up
+     * @return its species
+     * @throws IllegalArgumentException if the class is not a registered species
+     */
+    public static Species of(Class<?> organismClass)
+    {
+        for (Species species : values()) {
+            if (species.organismClass == organismClass) {
+                return species;
+            }
+        }
+        throw new IllegalArgumentException("Not a registered species: " + organismClass.getName());
+    }
+}
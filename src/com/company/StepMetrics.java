@@ -0,0 +1,366 @@
+package com.company;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Measures where the time of a step goes, and how fast steps run, and
+ * publishes it as a JMX MBean named com.company:type=StepMetrics.
+ *
+ * The metrics are off unless the virtual machine is started with
+ * -Dsimulation.metrics=true. ENABLED is a constant, so when they are off
+ * every guarded measurement is compiled away. When they are on, each
+ * measurement costs a System.nanoTime() call and an uncontended add.
+ * The phases of an organism's turn are too short and too many to measure
+ * every time: each thread only measures one turn in SAMPLE_INTERVAL, and
+ * counts it that many times over.
+ * Totals are gathered into windows of about a second; the MBean shows
+ * the last complete window.
+ *
+ * With -Dsimulation.metrics.allocation=true as well, the bytes each
+ * thread allocates are also attributed to the phase that allocated
+ * them, which costs a good deal more per measurement, and every turn is
+ * measured.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class StepMetrics implements StepMetricsMBean
+{
+    // Whether to measure anything at all; fixed when the class is loaded.
+    public static final boolean ENABLED = Boolean.getBoolean("simulation.metrics");
+    // Whether to attribute allocation to phases as well; fixed when the class is loaded.
+    public static final boolean ALLOCATION = ENABLED && Boolean.getBoolean("simulation.metrics.allocation");
+    // The name the metrics are registered under.
+    public static final String OBJECT_NAME = "com.company:type=StepMetrics";
+    // How long each window lasts, in nanoseconds.
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    // Each thread measures one organism's turn in this many; every turn
+    // when allocation is attributed, so that the bytes are exact.
+    public static final int SAMPLE_INTERVAL = ALLOCATION ? 1 : 64;
+
+    // Reports the bytes allocated by a thread, where the virtual machine can.
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+    // The bytes each thread had allocated when its current phase started.
+    private static final ThreadLocal<long[]> PHASE_START_BYTES = ThreadLocal.withInitial(() -> new long[1]);
+    // How many turns each thread has taken since it last measured one.
+    private static final ThreadLocal<int[]> TURNS_SINCE_SAMPLE = ThreadLocal.withInitial(() -> new int[1]);
+
+    // The metrics of the virtual machine, or null when they are off.
+    private static final StepMetrics INSTANCE = ENABLED ? register(new StepMetrics()) : null;
+
+    /**
+     * The parts of a step that are timed.
+     */
+    public enum Phase
+    {
+        BREED, FIND_FOOD, MOVE, SPREAD, REMOVE, MERGE, STATS, RENDER
+    }
+
+    // The nanoseconds spent in each phase in the current window.
+    private final LongAdder[] phaseNanos = new LongAdder[Phase.values().length];
+    // Organisms that took a turn, were born and died in the current window.
+    private final LongAdder acted = new LongAdder();
+    private final LongAdder births = new LongAdder();
+    private final LongAdder deaths = new LongAdder();
+    // The bytes allocated in each phase since the metrics were enabled.
+    private final LongAdder[] phaseBytes = new LongAdder[Phase.values().length];
+
+    // The current window; guarded by this.
+    private long windowStart = System.nanoTime();
+    private long windowSteps;
+    private long steps;
+
+    // The values of the last complete window.
+    private volatile double stepsPerSecond;
+    private volatile double organismsPerSecond;
+    private volatile double birthsPerStep;
+    private volatile double deathsPerStep;
+    private volatile double heapBytesPerOrganism;
+    private volatile double[] phaseMicrosPerStep = new double[Phase.values().length];
+
+    /**
+     * Create metrics with nothing measured yet.
+     */
+    private StepMetrics()
+    {
+        for(int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new LongAdder();
+            phaseBytes[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @return The virtual machine's thread bean, with allocation counting
+     * on, or null if allocation is not being attributed or cannot be.
+     */
+    private static com.sun.management.ThreadMXBean allocationCounter()
+    {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if(!ALLOCATION || !(threads instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+        if(!counter.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        counter.setThreadAllocatedMemoryEnabled(true);
+        return counter;
+    }
+
+    /**
+     * @return How many bytes the calling thread has allocated so far.
+     */
+    public static long currentThreadAllocatedBytes()
+    {
+        return THREADS == null ? 0 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Register metrics with the platform MBean server. Failing to do so
+     * leaves them working, only unpublished.
+     * @param metrics The metrics.
+     * @return The same metrics.
+     */
+    private static StepMetrics register(StepMetrics metrics)
+    {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(OBJECT_NAME));
+        }
+        catch(JMException e) {
+            System.err.println("Cannot publish step metrics: " + e.getMessage());
+        }
+        return metrics;
+    }
+
+    /**
+     * @return The metrics of the virtual machine, or null unless ENABLED.
+     */
+    public static StepMetrics get()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Note the start of a phase.
+     * @return The time now, to pass to record when the phase has finished.
+     */
+    public long start()
+    {
+        if(THREADS != null) {
+            PHASE_START_BYTES.get()[0] = currentThreadAllocatedBytes();
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Note the start of an organism's turn, and decide whether to measure it.
+     * @return Whether the calling thread is to measure this turn, with
+     * start() and recordSample().
+     */
+    public boolean sampleTurn()
+    {
+        int[] turns = TURNS_SINCE_SAMPLE.get();
+        if(++turns[0] < SAMPLE_INTERVAL) {
+            return false;
+        }
+        turns[0] = 0;
+        return true;
+    }
+
+    /**
+     * Add the time since start, and the bytes allocated since then by the
+     * calling thread, to a phase.
+     * @param phase The phase that has just finished.
+     * @param start When it started, from start() or an earlier record().
+     * @return The time now, so that the next phase can start from it.
+     */
+    public long record(Phase phase, long start)
+    {
+        return record(phase, start, 1);
+    }
+
+    /**
+     * Record a phase of a turn chosen by sampleTurn(), counting it for
+     * every turn it stands for.
+     * @param phase The phase that has just finished.
+     * @param start When it started, from start() or an earlier recordSample().
+     * @return The time now, so that the next phase can start from it.
+     */
+    public long recordSample(Phase phase, long start)
+    {
+        return record(phase, start, SAMPLE_INTERVAL);
+    }
+
+    /**
+     * Add the time since start, and the bytes allocated since then by the
+     * calling thread, to a phase.
+     * @param phase The phase that has just finished.
+     * @param start When it started.
+     * @param weight How many times over to count them.
+     * @return The time now.
+     */
+    private long record(Phase phase, long start, int weight)
+    {
+        if(THREADS != null) {
+            long[] startBytes = PHASE_START_BYTES.get();
+            long bytes = currentThreadAllocatedBytes();
+            phaseBytes[phase.ordinal()].add((bytes - startBytes[0]) * weight);
+            startBytes[0] = bytes;
+        }
+        long now = System.nanoTime();
+        phaseNanos[phase.ordinal()].add((now - start) * weight);
+        return now;
+    }
+
+    /**
+     * @param phase A phase.
+     * @return The bytes allocated in it since the metrics were enabled,
+     * or 0 unless ALLOCATION is on.
+     */
+    public long getAllocatedBytes(Phase phase)
+    {
+        return phaseBytes[phase.ordinal()].sum();
+    }
+
+    /**
+     * @param count How many organisms have just taken a turn.
+     */
+    public void acted(int count)
+    {
+        acted.add(count);
+    }
+
+    /**
+     * @param count How many organisms have just been born.
+     */
+    public void born(int count)
+    {
+        births.add(count);
+    }
+
+    /**
+     * @param count How many dead organisms have just been removed.
+     */
+    public void died(int count)
+    {
+        deaths.add(count);
+    }
+
+    /**
+     * Note the end of a step, closing the window if it has lasted long enough.
+     * @param population How many organisms are alive after the step.
+     */
+    public synchronized void stepCompleted(int population)
+    {
+        steps++;
+        windowSteps++;
+        long now = System.nanoTime();
+        long elapsed = now - windowStart;
+        if(elapsed < WINDOW_NANOS) {
+            return;
+        }
+        double seconds = elapsed / 1e9;
+        stepsPerSecond = windowSteps / seconds;
+        organismsPerSecond = acted.sumThenReset() / seconds;
+        birthsPerStep = (double) births.sumThenReset() / windowSteps;
+        deathsPerStep = (double) deaths.sumThenReset() / windowSteps;
+        Runtime runtime = Runtime.getRuntime();
+        heapBytesPerOrganism = population == 0 ? 0
+            : (double) (runtime.totalMemory() - runtime.freeMemory()) / population;
+        double[] micros = new double[phaseNanos.length];
+        for(int i = 0; i < micros.length; i++) {
+            micros[i] = phaseNanos[i].sumThenReset() / 1e3 / windowSteps;
+        }
+        phaseMicrosPerStep = micros;
+        windowStart = now;
+        windowSteps = 0;
+    }
+
+    @Override
+    public synchronized long getSteps()
+    {
+        return steps;
+    }
+
+    @Override
+    public double getStepsPerSecond()
+    {
+        return stepsPerSecond;
+    }
+
+    @Override
+    public double getOrganismsPerSecond()
+    {
+        return organismsPerSecond;
+    }
+
+    @Override
+    public double getBirthsPerStep()
+    {
+        return birthsPerStep;
+    }
+
+    @Override
+    public double getDeathsPerStep()
+    {
+        return deathsPerStep;
+    }
+
+    @Override
+    public double getHeapBytesPerOrganism()
+    {
+        return heapBytesPerOrganism;
+    }
+
+    @Override
+    public double getBreedMicrosPerStep()
+    {
+        return phaseMicrosPerStep[Phase.BREED.ordinal()];
+    }
+
+    @Override
+    public double getFindFoodMicrosPerStep()
+    {
+        return phaseMicrosPerStep[Phase.FIND_FOOD.ordinal()];
+    }
+
+    @Override
+    public double getMoveMicrosPerStep()
+    {
+        return phaseMicrosPerStep[Phase.MOVE.ordinal()];
+    }
+
+    @Override
+    public double getSpreadMicrosPerStep()
+    {
+        return phaseMicrosPerStep[Phase.SPREAD.ordinal()];
+    }
+
+    @Override
+    public double getRemoveMicrosPerStep()
+    {
+        return phaseMicrosPerStep[Phase.REMOVE.ordinal()];
+    }
+
+    @Override
+    public double getMergeMicrosPerStep()
+    {
+        return phaseMicrosPerStep[Phase.MERGE.ordinal()];
+    }
+
+    @Override
+    public double getStatsMicrosPerStep()
+    {
+        return phaseMicrosPerStep[Phase.STATS.ordinal()];
+    }
+
+    @Override
+    public double getRenderMicrosPerStep()
+    {
+        return phaseMicrosPerStep[Phase.RENDER.ordinal()];
+    }
+}
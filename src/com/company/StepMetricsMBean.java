@@ -0,0 +1,82 @@
+package com.company;
+
+/**
+ * The management interface of StepMetrics, as seen in a JMX console.
+ * Every value covers the last completed window of about a second, over
+ * all the simulations running in the virtual machine.
+ *
+ * @author Nicholas Pezzotti
+ */
+public interface StepMetricsMBean
+{
+    /**
+     * @return How many steps have completed since the metrics were enabled.
+     */
+    long getSteps();
+
+    /**
+     * @return Steps completed per second.
+     */
+    double getStepsPerSecond();
+
+    /**
+     * @return Organisms that took a turn per second.
+     */
+    double getOrganismsPerSecond();
+
+    /**
+     * @return Organisms born per step.
+     */
+    double getBirthsPerStep();
+
+    /**
+     * @return Organisms that died, and were handed back to a pool, per step.
+     */
+    double getDeathsPerStep();
+
+    /**
+     * @return The heap in use divided by the number of organisms alive;
+     * a rough guide, as it includes garbage not yet collected.
+     */
+    double getHeapBytesPerOrganism();
+
+    /**
+     * @return Microseconds per step spent breeding animals.
+     */
+    double getBreedMicrosPerStep();
+
+    /**
+     * @return Microseconds per step spent by animals looking for food.
+     */
+    double getFindFoodMicrosPerStep();
+
+    /**
+     * @return Microseconds per step spent moving animals.
+     */
+    double getMoveMicrosPerStep();
+
+    /**
+     * @return Microseconds per step spent ageing and spreading grass.
+     */
+    double getSpreadMicrosPerStep();
+
+    /**
+     * @return Microseconds per step spent removing dead organisms.
+     */
+    double getRemoveMicrosPerStep();
+
+    /**
+     * @return Microseconds per step spent merging newborns into the population.
+     */
+    double getMergeMicrosPerStep();
+
+    /**
+     * @return Microseconds per step spent telling observers, such as statistics recorders.
+     */
+    double getStatsMicrosPerStep();
+
+    /**
+     * @return Microseconds per step spent handing frames to the view.
+     */
+    double getRenderMicrosPerStep();
+}
@@ -0,0 +1,246 @@
+package com.company;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import javax.imageio.ImageIO;
+
+/**
+ * The shape of the land and water of a field, fixed when the field is
+ * built. One bit is kept per cell, indexed by row * width + col, so even
+ * very large maps stay small and a lookup is a shift and a mask.
+ *
+ * Besides the built-in shape, terrain can be read from an image, where
+ * cells whose pixels are mostly blue are water, or from a binary map
+ * file, which is memory-mapped rather than read through a stream. A map
+ * file holds the int MAGIC, the depth and the width, big-endian, followed
+ * by the bits, packed into little-endian longs, one for each water cell.
+ *
+ * @author Nicholas Pezzotti
+ */
+public final class Terrain
+{
+    // Marks the start of a binary map file ("TERR").
+    public static final int MAGIC = 0x54455252;
+    // The size of a map file's header, in bytes.
+    private static final int HEADER_BYTES = 12;
+
+    private final int depth, width;
+    // A bit for every cell, set for water.
+    private final long[] water;
+
+    /**
+     * Create terrain that is all land.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    private Terrain(int depth, int width)
+    {
+        if(depth <= 0 || width <= 0) {
+            throw new IllegalArgumentException("The dimensions must be greater than zero: " + depth + "x" + width);
+        }
+        if((long) depth * width > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A field can have at most " + Integer.MAX_VALUE + " cells: "
+                                               + depth + "x" + width);
+        }
+        this.depth = depth;
+        this.width = width;
+        water = new long[wordCount(depth, width)];
+    }
+
+    /**
+     * The built-in shape: water fills the corner around the first row and
+     * column, where row * col < depth * 10.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @return The terrain.
+     */
+    public static Terrain standard(int depth, int width)
+    {
+        Terrain terrain = new Terrain(depth, width);
+        for(int row = 0; row < depth; row++) {
+            for(int col = 0; col < width; col++) {
+                if(row * col < depth * 10) {
+                    terrain.setWater(row * width + col);
+                }
+            }
+        }
+        return terrain;
+    }
+
+    /**
+     * Read terrain from an image, a cell per pixel. Pixels whose blue is
+     * stronger than both their red and their green are water.
+     * @param file The image, in any format ImageIO reads.
+     * @return The terrain, as deep and wide as the image.
+     * @throws IOException If the image cannot be read.
+     */
+    public static Terrain fromImage(File file) throws IOException
+    {
+        BufferedImage image = ImageIO.read(file);
+        if(image == null) {
+            throw new IOException("Not a readable image: " + file);
+        }
+        Terrain terrain = new Terrain(image.getHeight(), image.getWidth());
+        int[] line = new int[terrain.width];
+        for(int row = 0; row < terrain.depth; row++) {
+            image.getRGB(0, row, terrain.width, 1, line, 0, terrain.width);
+            for(int col = 0; col < terrain.width; col++) {
+                int red = (line[col] >> 16) & 0xff;
+                int green = (line[col] >> 8) & 0xff;
+                int blue = line[col] & 0xff;
+                if(blue > red && blue > green) {
+                    terrain.setWater(row * terrain.width + col);
+                }
+            }
+        }
+        return terrain;
+    }
+
+    /**
+     * Read terrain from a binary map file by mapping it into memory.
+     * @param path The map file.
+     * @return The terrain.
+     * @throws IOException If the file cannot be read or is not a map file.
+     */
+    public static Terrain fromMapFile(Path path) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(map.remaining() < HEADER_BYTES || map.getInt() != MAGIC) {
+                throw new IOException("Not a terrain map file: " + path);
+            }
+            int depth = map.getInt();
+            int width = map.getInt();
+            return read(depth, width, map);
+        }
+    }
+
+    /**
+     * Read terrain from a file, as an image or as a binary map file
+     * depending on whether the file starts with MAGIC.
+     * @param path The file.
+     * @return The terrain.
+     * @throws IOException If the file cannot be read as either.
+     */
+    public static Terrain load(Path path) throws IOException
+    {
+        ByteBuffer start = ByteBuffer.allocate(4);
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.read(start);
+        }
+        if(start.position() == 4 && start.getInt(0) == MAGIC) {
+            return fromMapFile(path);
+        }
+        return fromImage(path.toFile());
+    }
+
+    /**
+     * Write the terrain to a binary map file, which fromMapFile reads back.
+     * @param path The file to write; it is replaced if it exists.
+     * @throws IOException If the file cannot be written.
+     */
+    public void writeMapFile(Path path) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + getByteCount());
+        buffer.putInt(MAGIC).putInt(depth).putInt(width);
+        write(buffer);
+        buffer.flip();
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Read the bits of terrain of the given size from a buffer, as put
+     * there by write, and move the buffer past them.
+     * @param depth The depth of the terrain.
+     * @param width The width of the terrain.
+     * @param buffer The buffer, positioned at the bits.
+     * @return The terrain.
+     * @throws IOException If the buffer holds too few bits.
+     */
+    static Terrain read(int depth, int width, ByteBuffer buffer) throws IOException
+    {
+        if(buffer.remaining() < 8L * wordCount(depth, width)) {
+            throw new IOException("Terrain is truncated");
+        }
+        Terrain terrain = new Terrain(depth, width);
+        LongBuffer bits = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        bits.get(terrain.water);
+        buffer.position(buffer.position() + terrain.getByteCount());
+        return terrain;
+    }
+
+    /**
+     * Put the bits of the terrain in a buffer, and move the buffer past them.
+     * @param buffer The buffer, with at least getByteCount bytes remaining.
+     */
+    void write(ByteBuffer buffer)
+    {
+        buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().put(water);
+        buffer.position(buffer.position() + getByteCount());
+    }
+
+    /**
+     * @return How many bytes read and write take.
+     */
+    int getByteCount()
+    {
+        return water.length * 8;
+    }
+
+    /**
+     * @param depth The depth of a field.
+     * @param width The width of a field.
+     * @return How many longs hold a bit for each of its cells.
+     */
+    private static int wordCount(int depth, int width)
+    {
+        return (int) (((long) depth * width + 63) / 64);
+    }
+
+    /**
+     * Make a cell water.
+     * @param index The index of the cell, row * width + col.
+     */
+    private void setWater(int index)
+    {
+        water[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * @param index The index of a cell, row * width + col.
+     * @return true if the cell is water.
+     */
+    public boolean isWater(int index)
+    {
+        return (water[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * @return The depth of the terrain, in cells.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * @return The width of the terrain, in cells.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+}
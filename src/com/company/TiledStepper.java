@@ -0,0 +1,364 @@
+package com.company;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs one simulation step, on one or several threads. The field is cut
+ * into square tiles, coloured like a checkerboard with four colours, and
+ * the step runs in four phases, one per colour. Within a phase the tiles
+ * are processed concurrently on a ForkJoinPool.
+ *
+ * An organism only ever reads or changes the cells next to where it
+ * starts its turn, so it never reaches more than one cell outside its
+ * tile. Tiles of the same colour are at least a whole tile apart, which
+ * keeps the cells touched by concurrent tiles apart. Each organism draws
+ * its random numbers from a stream keyed by the cell it starts in, so the
+ * outcome of a step is the same whatever the number of threads.
+ *
+ * The population is kept in buckets by Activity: at night the day-only
+ * bucket is not even looked at.
+ *
+ * Only the tiles that hold organisms are visited, and only they keep
+ * lists of organisms, so a large field that is mostly empty costs little
+ * more than a small one with the same population.
+ *
+ * Grass is not an organism but a layer of the field. Once the organisms
+ * have had their turn, it ages and spreads block by block, in four phases
+ * coloured the same way, visiting only the blocks that hold grass.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class TiledStepper
+{
+    // The default length of the side of a tile, in cells.
+    public static final int DEFAULT_TILE_SIZE = 32;
+    // The smallest tile that keeps concurrent tiles from touching.
+    private static final int MIN_TILE_SIZE = 2;
+    // How many tiles a single task processes before it stops splitting.
+    private static final int TILES_PER_TASK = 4;
+
+    // The threads tiles are processed on, or null to process them on the caller's.
+    private final ForkJoinPool pool;
+    private final Field field;
+    private final int tileSize;
+    private final int tileRows, tileCols;
+    // The lists of organisms of each tile, or null for a tile that held
+    // none at the start of this step or the last.
+    private final Tile[] tiles;
+    // The tiles holding organisms this step, in ascending order, and
+    // those of the last step, whose lists are dropped if they emptied.
+    private int[] activeTiles = new int[16];
+    private int activeCount;
+    private int[] lastActiveTiles = new int[16];
+    // The active tiles of each colour, and how many there are.
+    private final int[][] activeOfColour = new int[4][16];
+    private final int[] activeOfColourCount = new int[4];
+    // What a task does with each tile, and with each block of grass.
+    private final IntConsumer actInTile = this::actIn;
+    private final IntConsumer actInBlock;
+    // The seed and number of the step being run.
+    private long seed;
+    private int step;
+
+    /**
+     * Create a stepper for a field.
+     * @param field The field the simulation runs on.
+     * @param threads How many threads to run on; 1 runs on the calling thread.
+     * @param tileSize The length of the side of a tile, in cells. Must be at least 2.
+     */
+    public TiledStepper(Field field, int threads, int tileSize)
+    {
+        if(tileSize < MIN_TILE_SIZE) {
+            throw new IllegalArgumentException("Tiles must be at least " + MIN_TILE_SIZE + " cells across");
+        }
+        pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        this.field = field;
+        this.tileSize = tileSize;
+        tileRows = (field.getDepth() + tileSize - 1) / tileSize;
+        tileCols = (field.getWidth() + tileSize - 1) / tileSize;
+
+        tiles = new Tile[tileRows * tileCols];
+        actInBlock = field.getGrass()::act;
+    }
+
+    /**
+     * @param tile The index of a tile.
+     * @return Its colour, from 0 to 3. Neighbouring tiles never share a colour.
+     */
+    private int colourOf(int tile)
+    {
+        return (tile / tileCols % 2) * 2 + tile % tileCols % 2;
+    }
+
+    /**
+     * Let every organism that is awake take its turn once. Buckets of the
+     * population that are asleep are skipped without being looked at: their
+     * organisms neither act nor age.
+     * Afterwards each bucket that took its turn holds its survivors, tile
+     * by tile, followed by the newborns, tile by tile, written into its
+     * other buffer in one pass. Dead organisms are
+     * handed back to the field's pool, and the field is compacted.
+     * @param population The organisms in the simulation.
+     * @param seed The seed of the simulation.
+     * @param step The number of the step.
+     */
+    public void step(Population population, long seed, int step)
+    {
+        this.seed = seed;
+        this.step = step;
+        boolean day = field.getTimeOfDay();
+        OrganismPool organismPool = field.getPool();
+        int deaths = 0;
+        int acted = 0;
+        int[] lastActive = activeTiles;
+        int lastCount = activeCount;
+        activeTiles = lastActiveTiles;
+        lastActiveTiles = lastActive;
+        activeCount = 0;
+        for(Activity activity : Activity.values()) {
+            if(!activity.isAwake(day)) {
+                // The whole bucket sits the step out, untouched.
+                continue;
+            }
+            population.beginGeneration(activity);
+            Organism[] generation = population.getGeneration(activity);
+            int size = population.size(activity);
+            for(int k = 0; k < size; k++) {
+                Organism organism = generation[k];
+                Location location = organism.getLocation();
+                if(location == null) {
+                    // Killed after its turn in an earlier step.
+                    organismPool.release(organism);
+                    deaths++;
+                }
+                else {
+                    int tile = (location.getRow() / tileSize) * tileCols + location.getCol() / tileSize;
+                    residentsOf(tile).add(organism);
+                    acted++;
+                }
+            }
+        }
+        for(int i = 0; i < lastCount; i++) {
+            int tile = lastActive[i];
+            if(tiles[tile].isEmpty()) {
+                tiles[tile] = null;
+            }
+        }
+        // Visit and merge tiles in index order, as if every tile were visited.
+        Arrays.sort(activeTiles, 0, activeCount);
+        Arrays.fill(activeOfColourCount, 0);
+        for(int i = 0; i < activeCount; i++) {
+            int tile = activeTiles[i];
+            int colour = colourOf(tile);
+            int[] ofColour = activeOfColour[colour];
+            if(activeOfColourCount[colour] == ofColour.length) {
+                ofColour = Arrays.copyOf(ofColour, ofColour.length * 2);
+                activeOfColour[colour] = ofColour;
+            }
+            ofColour[activeOfColourCount[colour]++] = tile;
+        }
+
+        for(int colour = 0; colour < 4; colour++) {
+            runPhase(actInTile, activeOfColour[colour], activeOfColourCount[colour]);
+        }
+
+        long start = StepMetrics.ENABLED ? StepMetrics.get().start() : 0;
+        Grass grass = field.getGrass();
+        grass.startStep(field, seed, step);
+        for(int colour = 0; colour < 4; colour++) {
+            runPhase(actInBlock, grass.getBlocks(colour), grass.getBlockCount(colour));
+        }
+        grass.endStep();
+        if(StepMetrics.ENABLED) {
+            start = StepMetrics.get().record(StepMetrics.Phase.SPREAD, start);
+        }
+        for(int i = 0; i < activeCount; i++) {
+            Tile tile = tiles[activeTiles[i]];
+            deaths += keepSurvivors(tile.residents, population);
+        }
+        if(StepMetrics.ENABLED) {
+            start = StepMetrics.get().record(StepMetrics.Phase.REMOVE, start);
+        }
+        int births = 0;
+        for(int i = 0; i < activeCount; i++) {
+            List<Organism> tile = tiles[activeTiles[i]].newborns;
+            for(int k = 0; k < tile.size(); k++) {
+                population.add(tile.get(k));
+            }
+            births += tile.size();
+            tile.clear();
+        }
+        population.endGeneration();
+        field.compact();
+        if(StepMetrics.ENABLED) {
+            StepMetrics metrics = StepMetrics.get();
+            metrics.record(StepMetrics.Phase.MERGE, start);
+            metrics.acted(acted);
+            metrics.born(births);
+            metrics.died(deaths);
+        }
+    }
+
+    /**
+     * Run one phase of the step over some tiles, or blocks, that are
+     * far enough apart to be processed concurrently.
+     * @param action What to do with each.
+     * @param indices Their indices.
+     * @param count How many there are.
+     */
+    private void runPhase(IntConsumer action, int[] indices, int count)
+    {
+        if(pool != null) {
+            pool.invoke(new TileRange(action, indices, 0, count));
+        }
+        else {
+            for(int i = 0; i < count; i++) {
+                action.accept(indices[i]);
+            }
+        }
+    }
+
+    /**
+     * Return the list of organisms starting their turn in a tile, creating
+     * the tile's lists if it has none, and noting that it holds organisms
+     * this step.
+     * @param tile The index of the tile.
+     * @return The list.
+     */
+    private List<Organism> residentsOf(int tile)
+    {
+        Tile lists = tiles[tile];
+        if(lists == null) {
+            lists = new Tile();
+            tiles[tile] = lists;
+        }
+        if(lists.isEmpty()) {
+            activate(tile);
+        }
+        return lists.residents;
+    }
+
+    /**
+     * Put the organisms of a tile that are still alive into the next
+     * generation of the population, hand the dead back to the pool, and empty the list.
+     * @param tile The organisms that started the step in the tile.
+     * @param population The population.
+     * @return How many were dead.
+     */
+    private int keepSurvivors(List<Organism> tile, Population population)
+    {
+        OrganismPool organismPool = field.getPool();
+        int deaths = 0;
+        for(int k = 0; k < tile.size(); k++) {
+            Organism organism = tile.get(k);
+            if(organism.isAlive()) {
+                population.add(organism);
+            }
+            else {
+                organismPool.release(organism);
+                deaths++;
+            }
+        }
+        tile.clear();
+        return deaths;
+    }
+
+    /**
+     * Add a tile to the tiles holding organisms this step.
+     * @param tile The index of the tile.
+     */
+    private void activate(int tile)
+    {
+        if(activeCount == activeTiles.length) {
+            activeTiles = Arrays.copyOf(activeTiles, activeTiles.length * 2);
+        }
+        activeTiles[activeCount++] = tile;
+    }
+
+    /**
+     * Stop the threads the stepper runs on.
+     */
+    public void shutdown()
+    {
+        if(pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Let the organisms that start the step in a tile act.
+     * @param tile The index of the tile.
+     */
+    private void actIn(int tile)
+    {
+        Tile lists = tiles[tile];
+        List<Organism> born = lists.newborns;
+        for(Organism organism : lists.residents) {
+            Location location = organism.getLocation();
+            // Skip any eaten earlier in the step.
+            if(location != null) {
+                Randomizer.select(seed, step, field.getIndex(location));
+                organism.nextStep(born);
+            }
+        }
+    }
+
+    /**
+     * The organisms of one tile.
+     */
+    private static class Tile
+    {
+        // The organisms starting their turn in the tile.
+        final List<Organism> residents = new ArrayList<>();
+        // The organisms born in the tile during the step.
+        final List<Organism> newborns = new ArrayList<>();
+
+        /**
+         * @return Whether no organism starts the step in the tile.
+         */
+        boolean isEmpty()
+        {
+            return residents.isEmpty();
+        }
+    }
+
+    /**
+     * Processes a range of tiles, or blocks, of one colour, splitting it
+     * between threads while it is large.
+     */
+    private static class TileRange extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final IntConsumer action;
+        private final int[] tiles;
+        private final int from, to;
+
+        TileRange(IntConsumer action, int[] tiles, int from, int to)
+        {
+            this.action = action;
+            this.tiles = tiles;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(to - from <= TILES_PER_TASK) {
+                for(int i = from; i < to; i++) {
+                    action.accept(tiles[i]);
+                }
+            }
+            else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TileRange(action, tiles, from, middle), new TileRange(action, tiles, middle, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.company;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Records, for every step, how many organisms of each species there are
+ * and how many of them are sick, the weather and whether it is day.
+ * Rows are encoded into preallocated buffers on the simulation thread;
+ * full buffers are written to the file by a thread of the writer's own,
+ * so a step does not wait for the disk. There is a fixed number of
+ * buffers: if the disk falls that far behind, the simulation waits for a
+ * buffer to be written rather than making another.
+ *
+ * A CSV file has a header line and then a line per step:
+ * step, day (1 or 0), weather (empty before the first step), then the
+ * count and sick count of each species.
+ *
+ * A binary file is for very long runs. It starts with MAGIC and the
+ * number of species, and then holds a row per step: the change in step
+ * number, a byte giving the weather (its ordinal plus one, 0 for none)
+ * and, in its top bit, whether it is day, then the change in the count
+ * and the sick count of each species. Every change is a zigzag varint,
+ * so a typical row takes a byte or two per number. toCsv converts a
+ * binary file to CSV.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class TimeSeriesWriter implements SimulatorObserver, Closeable
+{
+    /**
+     * How rows are written.
+     */
+    public enum Format
+    {
+        CSV, BINARY
+    }
+
+    // Marks the start of a binary file ("TSER").
+    public static final int MAGIC = 0x54534552;
+    // The size of each buffer handed to the writing thread.
+    private static final int BUFFER_BYTES = 1 << 18;
+    // How many buffers there are.
+    private static final int BUFFER_COUNT = 4;
+    // More than the longest row of either format.
+    private static final int MAX_ROW_BYTES = 32 + Species.values().length * 24;
+    // The top bit of a binary row's weather byte, set by day.
+    private static final int DAY_BIT = 0x80;
+    // The name of each weather as written in a CSV row, by ordinal.
+    private static final byte[][] WEATHER_NAMES = new byte[WeatherType.values().length][];
+
+    static {
+        for(WeatherType weather : WeatherType.values()) {
+            WEATHER_NAMES[weather.ordinal()] = weather.name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final Format format;
+    private final FileChannel channel;
+    // Full buffers waiting to be written, in order.
+    private final LinkedBlockingQueue<ByteBuffer> full = new LinkedBlockingQueue<>();
+    // Written buffers ready to be filled again.
+    private final BlockingQueue<ByteBuffer> empty = new ArrayBlockingQueue<>(BUFFER_COUNT);
+    // Handed to the writing thread to tell it to finish.
+    private final ByteBuffer endOfStream = ByteBuffer.allocate(0);
+    private final Thread writer;
+    // The first failure of the writing thread, reported by close.
+    private volatile IOException failure;
+    // The buffer rows are being encoded into.
+    private ByteBuffer current;
+    // The counts of the row being written, by species ordinal * 2, plus one for the sick count.
+    private final int[] counts;
+    // The last row written, for the binary deltas.
+    private int lastStep;
+    private final int[] lastCounts;
+
+    /**
+     * Create a writer, replacing the file if it exists.
+     * @param path The file to write.
+     * @param format How to write the rows.
+     * @throws IOException If the file cannot be opened.
+     */
+    public TimeSeriesWriter(Path path, Format format) throws IOException
+    {
+        this.format = format;
+        channel = FileChannel.open(path, StandardOpenOption.WRITE,
+                                   StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        counts = new int[Species.values().length * 2];
+        lastCounts = new int[counts.length];
+        current = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        for(int buffer = 1; buffer < BUFFER_COUNT; buffer++) {
+            empty.add(ByteBuffer.allocateDirect(BUFFER_BYTES));
+        }
+        writeHeader();
+        writer = new Thread(this::drain, "time-series-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Choose the format from a file name: CSV for ".csv", otherwise binary.
+     * @param path The file.
+     * @return The format.
+     */
+    public static Format formatFor(Path path)
+    {
+        return path.toString().toLowerCase().endsWith(".csv") ? Format.CSV : Format.BINARY;
+    }
+
+    /**
+     * Start the file.
+     */
+    private void writeHeader()
+    {
+        if(format == Format.CSV) {
+            StringBuilder header = new StringBuilder("step,day,weather");
+            for(Species species : Species.values()) {
+                header.append(',').append(species).append(',').append(species).append("_SICK");
+            }
+            current.put(header.append('\n').toString().getBytes(StandardCharsets.US_ASCII));
+        }
+        else {
+            current.putInt(MAGIC).putInt(Species.values().length);
+        }
+    }
+
+    /**
+     * Record a row for the step just completed. Called on the simulation thread.
+     * @param step The step.
+     * @param field The field at the end of the step.
+     */
+    public void stepCompleted(int step, Field field)
+    {
+        FieldStats stats = field.getStats();
+        for(Species species : Species.values()) {
+            counts[species.ordinal() * 2] = stats.getCount(species);
+            counts[species.ordinal() * 2 + 1] = stats.getSickCount(species);
+        }
+        if(format == Format.CSV) {
+            putRow(step, field.getTimeOfDay(), field.getCurrentWeather(), counts);
+        }
+        else {
+            putBinaryRow(step, field.getTimeOfDay(), field.getCurrentWeather(), counts);
+        }
+    }
+
+    /**
+     * Encode a binary row.
+     * @param step The step.
+     * @param day Whether it was day.
+     * @param weather The weather, or null.
+     * @param counts The count and sick count of each species, by species ordinal * 2.
+     */
+    private void putBinaryRow(int step, boolean day, WeatherType weather, int[] counts)
+    {
+        if(current.remaining() < MAX_ROW_BYTES) {
+            handOver();
+        }
+        putVarint(step - lastStep);
+        lastStep = step;
+        current.put((byte) ((weather == null ? 0 : weather.ordinal() + 1) | (day ? DAY_BIT : 0)));
+        for(int slot = 0; slot < counts.length; slot++) {
+            putVarint(counts[slot] - lastCounts[slot]);
+            lastCounts[slot] = counts[slot];
+        }
+    }
+
+    /**
+     * Pass the current buffer to the writing thread and carry on in an
+     * empty one, waiting for the writer to empty one if none is.
+     */
+    private void handOver()
+    {
+        current.flip();
+        full.add(current);
+        boolean interrupted = false;
+        ByteBuffer next = null;
+        while(next == null) {
+            try {
+                next = empty.take();
+            }
+            catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        current = next;
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write full buffers to the file until told to finish. Runs on the
+     * writing thread.
+     */
+    private void drain()
+    {
+        try {
+            while(true) {
+                ByteBuffer buffer = full.take();
+                if(buffer == endOfStream) {
+                    return;
+                }
+                if(failure == null) {
+                    try {
+                        while(buffer.hasRemaining()) {
+                            channel.write(buffer);
+                        }
+                    }
+                    catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                buffer.clear();
+                empty.add(buffer);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write out everything recorded and close the file.
+     * @throws IOException If anything could not be written.
+     */
+    public void close() throws IOException
+    {
+        handOver();
+        full.add(endOfStream);
+        try {
+            writer.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if(failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Encode a number as ASCII digits.
+     * @param value The number, at least zero.
+     */
+    private void putDecimal(int value)
+    {
+        int digits = 1;
+        for(int rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        int end = current.position() + digits;
+        for(int at = end - 1; at >= current.position(); at--) {
+            current.put(at, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        current.position(end);
+    }
+
+    /**
+     * Encode a number as a zigzag varint: seven bits a byte, low bits
+     * first, the top bit set on all but the last byte.
+     * @param value The number.
+     */
+    private void putVarint(int value)
+    {
+        int zigzag = (value << 1) ^ (value >> 31);
+        while((zigzag & ~0x7f) != 0) {
+            current.put((byte) ((zigzag & 0x7f) | 0x80));
+            zigzag >>>= 7;
+        }
+        current.put((byte) zigzag);
+    }
+
+    /**
+     * Convert a binary time series to CSV.
+     * @param binary The binary file.
+     * @param csv The CSV file to write; it is replaced if it exists.
+     * @throws IOException If either file cannot be used, or the first is
+     *                     not a time series of this simulation's species.
+     */
+    public static void toCsv(Path binary, Path csv) throws IOException
+    {
+        MappedByteBuffer in;
+        try(FileChannel channel = FileChannel.open(binary, StandardOpenOption.READ)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if(in.remaining() < 8 || in.getInt() != MAGIC || in.getInt() != Species.values().length) {
+            throw new IOException("Not a time series of " + Species.values().length + " species: " + binary);
+        }
+        Species[] species = Species.values();
+        WeatherType[] weathers = WeatherType.values();
+        int[] counts = new int[species.length * 2];
+        int step = 0;
+        try(TimeSeriesWriter out = new TimeSeriesWriter(csv, Format.CSV)) {
+            while(in.hasRemaining()) {
+                step += getVarint(in);
+                if(!in.hasRemaining()) {
+                    throw new IOException("Time series is truncated: " + binary);
+                }
+                int weather = in.get() & 0xff;
+                if((weather & ~DAY_BIT) > weathers.length) {
+                    throw new IOException("Corrupt time series (bad weather " + (weather & ~DAY_BIT) + "): " + binary);
+                }
+                for(int slot = 0; slot < counts.length; slot++) {
+                    counts[slot] += getVarint(in);
+                }
+                out.putRow(step, (weather & DAY_BIT) != 0,
+                           (weather & ~DAY_BIT) == 0 ? null : weathers[(weather & ~DAY_BIT) - 1], counts);
+            }
+        }
+    }
+
+    /**
+     * Encode a CSV row from decoded values.
+     * @param step The step.
+     * @param day Whether it was day.
+     * @param weather The weather, or null.
+     * @param counts The count and sick count of each species, by species ordinal * 2.
+     */
+    private void putRow(int step, boolean day, WeatherType weather, int[] counts)
+    {
+        if(current.remaining() < MAX_ROW_BYTES) {
+            handOver();
+        }
+        putDecimal(step);
+        current.put((byte) ',').put((byte) (day ? '1' : '0')).put((byte) ',');
+        if(weather != null) {
+            current.put(WEATHER_NAMES[weather.ordinal()]);
+        }
+        for(int count : counts) {
+            current.put((byte) ',');
+            putDecimal(count);
+        }
+        current.put((byte) '\n');
+    }
+
+    /**
+     * Decode a zigzag varint.
+     * @param in The buffer, positioned at the varint.
+     * @return The number.
+     * @throws IOException If the varint runs off the end of the buffer, or
+     *                     is longer than an int's.
+     */
+    private static int getVarint(ByteBuffer in) throws IOException
+    {
+        int zigzag = 0;
+        for(int shift = 0; ; shift += 7) {
+            if(!in.hasRemaining()) {
+                throw new IOException("Time series is truncated");
+            }
+            if(shift > 28) {
+                throw new IOException("Corrupt time series (varint too long)");
+            }
+            int b = in.get();
+            zigzag |= (b & 0x7f) << shift;
+            if((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+    }
+}
@@ -22,6 +22,15 @@ public class Weather
         currentWeather = WeatherType.SUNNY;
     }
 
+    /**
+     * Constructor for weather that carries on from the given weather.
+     * @param currentWeather the weather to carry on from.
+     */
+    public Weather(WeatherType currentWeather)
+    {
+        this.currentWeather = currentWeather;
+    }
+
     /**
      * Gets a new weather type based on a random outcome, as described in the fields.
      * @return the new WeatherType.
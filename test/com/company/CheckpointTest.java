@@ -0,0 +1,152 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that a checkpoint restores a simulation exactly, parameters and
+ * all, and that a corrupt one is rejected.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class CheckpointTest
+{
+    private static final int DEPTH = 40, WIDTH = 60;
+    private static final long SEED = 42;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void restoredSimulationGoesOnAsTheSavedOne() throws IOException
+    {
+        Simulator original = newSimulator(SimulationParameters.defaults());
+        original.simulate(40);
+        Path saved = dir.resolve("saved.ckpt");
+        original.saveCheckpoint(saved);
+
+        Simulator restored = Simulator.fromCheckpoint(saved, false);
+        assertEquals(original.getStep(), restored.getStep());
+        assertEquals(original.getSeed(), restored.getSeed());
+        assertEquals(original.getField().getStats().getPopulationDetails(),
+                     restored.getField().getStats().getPopulationDetails());
+
+        original.simulate(40);
+        restored.simulate(40);
+        assertArrayEquals(save(original, "original"), save(restored, "restored"));
+    }
+
+    @Test
+    public void parametersAreSaved() throws IOException
+    {
+        SimulationParameters parameters = SimulationParameters.defaults();
+        parameters.set(Species.FOX, SimulationParameters.Name.MAX_AGE, 50);
+        parameters.set(Species.GRASS, SimulationParameters.Name.BREEDING_PROBABILITY, 0.5);
+        Path saved = dir.resolve("parameters.ckpt");
+        newSimulator(parameters).saveCheckpoint(saved);
+
+        SimulationParameters restored = Simulator.fromCheckpoint(saved, false).getParameters();
+        for(SimulationParameters.Name name : SimulationParameters.Name.values()) {
+            for(Species species : Species.values()) {
+                assertEquals(parameters.get(species, name), restored.get(species, name), species + " " + name);
+            }
+        }
+    }
+
+    @Test
+    public void version2FileKeepsTheRestoringParameters() throws IOException
+    {
+        Simulator original = newSimulator(SimulationParameters.defaults());
+        original.simulate(40);
+        byte[] current = save(original, "current");
+        // A version 2 file is a version 3 one without the parameters.
+        int parametersAt = Checkpoint.HEADER_BYTES + Terrain.standard(DEPTH, WIDTH).getByteCount();
+        int rest = current.length - parametersAt - Checkpoint.PARAMETER_BYTES;
+        ByteBuffer version2 = ByteBuffer.allocate(parametersAt + rest);
+        version2.put(current, 0, parametersAt).put(current, parametersAt + Checkpoint.PARAMETER_BYTES, rest);
+        version2.putInt(Checkpoint.VERSION_OFFSET, 2);
+        Path saved = Files.write(dir.resolve("version2.ckpt"), version2.array());
+
+        Simulator restored = Simulator.fromCheckpoint(saved, false);
+        assertEquals(original.getStep(), restored.getStep());
+        assertEquals(original.getField().getStats().getPopulationDetails(),
+                     restored.getField().getStats().getPopulationDetails());
+        original.simulate(40);
+        restored.simulate(40);
+        assertArrayEquals(save(original, "original"), save(restored, "restored"));
+
+        SimulationParameters parameters = SimulationParameters.defaults();
+        parameters.set(Species.FOX, SimulationParameters.Name.MAX_AGE, 50);
+        Simulator other = newSimulator(parameters);
+        other.restore(Checkpoint.read(saved));
+        assertEquals(50, other.getParameters().getMaxAge(Species.FOX));
+    }
+
+    @Test
+    public void corruptRecordsAreRejected() throws IOException
+    {
+        Simulator simulator = newSimulator(SimulationParameters.defaults());
+        byte[] bytes = save(simulator, "good");
+        int firstRecord = Checkpoint.HEADER_BYTES + Terrain.standard(DEPTH, WIDTH).getByteCount()
+            + Checkpoint.PARAMETER_BYTES;
+
+        byte[] badSpecies = bytes.clone();
+        badSpecies[firstRecord] = (byte) Species.values().length;
+        assertCorrupt(badSpecies, "species");
+
+        byte[] badCell = bytes.clone();
+        ByteBuffer.wrap(badCell).putInt(firstRecord + Checkpoint.RECORD_INDEX_OFFSET, DEPTH * WIDTH);
+        assertCorrupt(badCell, "cell");
+
+        byte[] badWeather = bytes.clone();
+        badWeather[Checkpoint.WEATHER_OFFSET] = (byte) WeatherType.values().length;
+        assertCorrupt(badWeather, "weather");
+
+        byte[] badCount = bytes.clone();
+        ByteBuffer.wrap(badCount).putInt(Checkpoint.COUNT_OFFSET, -1);
+        assertCorrupt(badCount, "count");
+    }
+
+    /**
+     * @param parameters The parameters to run with.
+     * @return A new simulation on a small field.
+     */
+    private static Simulator newSimulator(SimulationParameters parameters)
+    {
+        return new Simulator(new Field(Terrain.standard(DEPTH, WIDTH)), parameters, SEED, 1.0, false);
+    }
+
+    /**
+     * @param simulator A simulation.
+     * @param name A name for its checkpoint file.
+     * @return The bytes of a checkpoint of it.
+     */
+    private byte[] save(Simulator simulator, String name) throws IOException
+    {
+        Path path = dir.resolve(name + ".ckpt");
+        simulator.saveCheckpoint(path);
+        return Files.readAllBytes(path);
+    }
+
+    /**
+     * Check that a checkpoint is refused as corrupt.
+     * @param bytes The checkpoint.
+     * @param what What should be reported as bad.
+     */
+    private void assertCorrupt(byte[] bytes, String what) throws IOException
+    {
+        Path path = Files.write(dir.resolve("bad-" + what + ".ckpt"), bytes);
+        IOException e = assertThrows(IOException.class, () -> Checkpoint.read(path));
+        assertTrue(e.getMessage().startsWith("Corrupt checkpoint") && e.getMessage().contains(what), e.getMessage());
+    }
+}
@@ -0,0 +1,55 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the counts kept as organisms come and go match a count
+ * of the whole field.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class FieldStatsTest
+{
+    @Test
+    public void countsMatchAFullRecount()
+    {
+        Simulator simulator = new Simulator(new Field(Terrain.standard(40, 60)), SimulationParameters.defaults(),
+                                            5, 1.0, false);
+        Field field = simulator.getField();
+        assertMatchesRecount(field);
+        for(int step = 0; step < 60; step++) {
+            simulator.simulateOneStep();
+            assertMatchesRecount(field);
+        }
+    }
+
+    /**
+     * Count every organism and every cell of grass in a field, and check
+     * the field's stats agree.
+     * @param field The field.
+     */
+    private static void assertMatchesRecount(Field field)
+    {
+        int[] counts = new int[Species.values().length];
+        int[] sickCounts = new int[Species.values().length];
+        Grass grass = field.getGrass();
+        for(int index = 0; index < field.getCellCount(); index++) {
+            Organism organism = field.getObjectAt(index);
+            if(organism != null) {
+                counts[organism.getSpecies().ordinal()]++;
+                sickCounts[organism.getSpecies().ordinal()] += organism.isSick() ? 1 : 0;
+            }
+            if(grass.has(index)) {
+                counts[Species.GRASS.ordinal()]++;
+                sickCounts[Species.GRASS.ordinal()] += grass.isSick(index) ? 1 : 0;
+            }
+        }
+        FieldStats stats = field.getStats();
+        for(Species species : Species.values()) {
+            assertEquals(counts[species.ordinal()], stats.getCount(species), species + " count");
+            assertEquals(sickCounts[species.ordinal()], stats.getSickCount(species), species + " sick count");
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks how a field finds its cells.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class FieldTest
+{
+    private static final int DEPTH = 12, WIDTH = 17;
+
+    @Test
+    public void locationsAreInterned()
+    {
+        Field field = new Field(DEPTH, WIDTH);
+        for(int row = 0; row < DEPTH; row++) {
+            for(int col = 0; col < WIDTH; col++) {
+                Location location = field.getLocation(row, col);
+                assertEquals(row, location.getRow());
+                assertEquals(col, location.getCol());
+                assertSame(location, field.getLocation(row, col));
+                assertSame(location, field.getLocation(row * WIDTH + col));
+                assertEquals(row * WIDTH + col, field.getIndex(location));
+            }
+        }
+    }
+
+    @Test
+    public void everyOrderVisitsTheNeighboursOnce()
+    {
+        Field field = new Field(DEPTH, WIDTH);
+        for(int index = 0; index < DEPTH * WIDTH; index++) {
+            int[] expected = neighboursOf(index);
+            assertEquals(expected.length, field.neighbourCount(index));
+            for(int draw = 0; draw < 20; draw++) {
+                int order = field.shuffleNeighbours(index);
+                int[] visited = new int[expected.length];
+                for(int k = 0; k < visited.length; k++) {
+                    visited[k] = field.neighbour(index, order, k);
+                }
+                Arrays.sort(visited);
+                assertArrayEquals(expected, visited, "cell " + index);
+            }
+        }
+    }
+
+    @Test
+    public void cellsHoldWhatIsPlacedInThem()
+    {
+        // Water fills the corner where row * col < 400, so these cells are land.
+        Field field = new Field(40, 40);
+        Organism rabbit = field.getPool().obtain(Species.RABBIT, false, field, field.getLocation(30, 31), false);
+        int index = 30 * 40 + 31;
+        assertSame(rabbit, field.getObjectAt(index));
+        assertSame(rabbit, field.getObjectAt(30, 31));
+        assertSame(rabbit, field.getObjectAt(field.getLocation(30, 31)));
+        assertEquals(Species.RABBIT.getId(), field.getSpeciesIdAt(index));
+        assertFalse(field.isFree(index));
+        assertEquals(1, field.getStats().getCount(Species.RABBIT));
+
+        Organism fox = field.getPool().obtain(Species.FOX, false, field, field.getLocation(30, 31), false);
+        assertSame(fox, field.getObjectAt(index));
+        assertEquals(0, field.getStats().getCount(Species.RABBIT));
+        assertEquals(1, field.getStats().getCount(Species.FOX));
+
+        field.clear(index);
+        assertNull(field.getObjectAt(index));
+        assertEquals(Species.NONE, field.getSpeciesIdAt(index));
+        assertTrue(field.isFree(index));
+        assertEquals(0, field.getStats().getCount(Species.FOX));
+    }
+
+    /**
+     * @param index A cell of a DEPTH x WIDTH field.
+     * @return The cells around it within the field, in index order.
+     */
+    private static int[] neighboursOf(int index)
+    {
+        int row = index / WIDTH, col = index % WIDTH;
+        int[] found = new int[8];
+        int count = 0;
+        for(int r = row - 1; r <= row + 1; r++) {
+            for(int c = col - 1; c <= col + 1; c++) {
+                if((r != row || c != col) && r >= 0 && r < DEPTH && c >= 0 && c < WIDTH) {
+                    found[count++] = r * WIDTH + c;
+                }
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+}
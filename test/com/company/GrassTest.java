@@ -0,0 +1,66 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the grass layer of a field.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class GrassTest
+{
+    @Test
+    public void cellsHoldTheirAgeAndSickness()
+    {
+        // A size that is not a multiple of the block size, so the last blocks are partly used.
+        Grass grass = new Grass(70, 45);
+        int corner = 69 * 45 + 44;
+        grass.plant(0, 0, false);
+        grass.plant(corner, Grass.MAX_AGE, true);
+        assertTrue(grass.has(0));
+        assertEquals(0, grass.getAge(0));
+        assertFalse(grass.isSick(0));
+        assertEquals(Grass.MAX_AGE, grass.getAge(corner));
+        assertTrue(grass.isSick(corner));
+        assertFalse(grass.has(1));
+        assertEquals(2, grass.getCounter().getCount());
+        assertEquals(1, grass.getCounter().getSickCount());
+
+        grass.plant(corner, 3, false);
+        assertEquals(3, grass.getAge(corner));
+        assertEquals(2, grass.getCounter().getCount());
+        assertEquals(0, grass.getCounter().getSickCount());
+
+        assertTrue(grass.remove(0));
+        assertFalse(grass.remove(0));
+        assertFalse(grass.has(0));
+        assertEquals(1, grass.getCounter().getCount());
+    }
+
+    @Test
+    public void oldGrassDiesAndItsBareBlockIsGivenBack()
+    {
+        // Water fills the corner where row * col < 400, so these cells are land.
+        Field field = new Field(40, 40);
+        field.restoreTime(0, true, WeatherType.SUNNY);
+        int maxAge = field.getParameters().getMaxAge(Species.GRASS);
+        int young = 30 * 40 + 30, old = 35 * 40 + 35;
+        field.plantGrass(young, 0, false);
+        field.plantGrass(old, maxAge, false);
+        Grass grass = field.getGrass();
+        // The old grass is alone in the last of the four blocks.
+        assertNotNull(grass.getBlock(3));
+
+        new TiledStepper(field, 1, TiledStepper.DEFAULT_TILE_SIZE).step(new Population(), 1118, 1);
+        assertEquals(1, grass.getAge(young));
+        assertFalse(grass.has(old));
+        assertNull(grass.getBlock(3));
+        assertEquals(1, field.getStats().getCount(Species.GRASS));
+    }
+}
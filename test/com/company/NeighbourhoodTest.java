@@ -0,0 +1,114 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the view an organism takes of the cells around it.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class NeighbourhoodTest
+{
+    private static final long SEED = 1118;
+    private static final int WIDTH = 40;
+
+    @Test
+    public void viewHoldsWhatIsAround()
+    {
+        // Water fills the corner where row * col < 400, so these cells are land.
+        Field field = new Field(40, WIDTH);
+        Organism rabbit = obtain(field, Species.RABBIT, 30, 30);
+        Organism fox = obtain(field, Species.FOX, 30, 31);
+        field.plantGrass(31 * WIDTH + 31, 0, false);
+
+        Randomizer.select(SEED, 1, 30 * WIDTH + 30);
+        Neighbourhood around = Neighbourhood.of(rabbit);
+        assertEquals(8, around.size());
+        int[] cells = new int[around.size()];
+        for(int k = 0; k < around.size(); k++) {
+            int cell = around.cell(k);
+            cells[k] = cell;
+            assertSame(field.getLocation(cell), around.location(k));
+            assertEquals(field.getSpeciesIdAt(cell), around.speciesId(k));
+            assertSame(field.getObjectAt(cell), around.occupant(k));
+            assertEquals(field.isFree(cell), around.isFree(k), "cell " + cell);
+            assertTrue(around.isRightTerritory(k));
+        }
+        Arrays.sort(cells);
+        assertArrayEquals(new int[] {29 * WIDTH + 29, 29 * WIDTH + 30, 29 * WIDTH + 31, 30 * WIDTH + 29,
+                                     30 * WIDTH + 31, 31 * WIDTH + 29, 31 * WIDTH + 30, 31 * WIDTH + 31}, cells);
+        assertTrue(around.hasAny(Species.FOX.getBit()));
+        assertTrue(around.hasAny(Species.GRASS.getBit()));
+        assertFalse(around.hasAny(Species.RABBIT.getBit() | Species.CROCODILE.getBit()));
+
+        int foxAt = indexOf(around, 30 * WIDTH + 31);
+        assertSame(fox, around.occupant(foxAt));
+        around.vacate(foxAt);
+        assertNull(around.occupant(foxAt));
+        assertEquals(Species.NONE, around.speciesId(foxAt));
+        assertTrue(around.isFree(foxAt));
+        around.occupy(foxAt, rabbit);
+        assertSame(rabbit, around.occupant(foxAt));
+        assertTrue(around.hasAny(Species.RABBIT.getBit()));
+    }
+
+    @Test
+    public void orderDependsOnlyOnTheStream()
+    {
+        Field field = new Field(40, WIDTH);
+        Organism rabbit = obtain(field, Species.RABBIT, 30, 30);
+        Randomizer.select(SEED, 1, 30 * WIDTH + 30);
+        int[] first = cellsOf(Neighbourhood.of(rabbit));
+        Randomizer.select(SEED, 1, 30 * WIDTH + 30);
+        assertArrayEquals(first, cellsOf(Neighbourhood.of(rabbit)));
+    }
+
+    /**
+     * @param field A field.
+     * @param species A species.
+     * @param row A row of land.
+     * @param col A column of land.
+     * @return A new organism of the species placed in that cell.
+     */
+    private static Organism obtain(Field field, Species species, int row, int col)
+    {
+        return field.getPool().obtain(species, false, field, field.getLocation(row, col), false);
+    }
+
+    /**
+     * @param around A view.
+     * @param cell The index of one of its cells.
+     * @return Which neighbour the cell is.
+     */
+    private static int indexOf(Neighbourhood around, int cell)
+    {
+        for(int k = 0; k < around.size(); k++) {
+            if(around.cell(k) == cell) {
+                return k;
+            }
+        }
+        throw new AssertionError("Not a neighbour: " + cell);
+    }
+
+    /**
+     * @param around A view.
+     * @return Its cells, in its order.
+     */
+    private static int[] cellsOf(Neighbourhood around)
+    {
+        int[] cells = new int[around.size()];
+        for(int k = 0; k < cells.length; k++) {
+            cells[k] = around.cell(k);
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,54 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that a recycled organism starts over as a newly made one would.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class OrganismPoolTest
+{
+    @Test
+    public void reusedOrganismIsReset()
+    {
+        // Water fills the corner where row * col < 400, so these cells are land.
+        Field field = new Field(40, 40);
+        OrganismPool pool = field.getPool();
+        Animal rabbit = (Animal) pool.obtain(Species.RABBIT, false, field, field.getLocation(30, 30), true);
+        rabbit.setAge(20);
+        rabbit.setFoodLevel(1);
+        rabbit.setDead();
+        pool.release(rabbit);
+
+        Location location = field.getLocation(31, 33);
+        Animal reused = (Animal) pool.obtain(Species.RABBIT, false, field, location, false);
+        Animal fresh = (Animal) Species.RABBIT.create(false, field, field.getLocation(35, 35), false);
+        assertSame(rabbit, reused);
+        assertEquals(1, pool.getHits(Species.RABBIT));
+        assertTrue(reused.isAlive());
+        assertFalse(reused.isSick());
+        assertSame(field, reused.getField());
+        assertEquals(location, reused.getLocation());
+        assertSame(reused, field.getObjectAt(field.getIndex(location)));
+        assertEquals(fresh.getAge(), reused.getAge());
+        assertEquals(fresh.getFoodLevel(), reused.getFoodLevel());
+    }
+
+    @Test
+    public void emptyPoolMakesNewOrganisms()
+    {
+        Field field = new Field(40, 40);
+        OrganismPool pool = field.getPool();
+        Organism first = pool.obtain(Species.FOX, false, field, field.getLocation(30, 30), false);
+        Organism second = pool.obtain(Species.FOX, false, field, field.getLocation(30, 31), false);
+        assertFalse(first == second);
+        assertEquals(0, pool.getHits(Species.FOX));
+        assertEquals(2, pool.getMisses(Species.FOX));
+    }
+}
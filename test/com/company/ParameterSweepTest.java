@@ -0,0 +1,70 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that a sweep runs every combination, each as a simulation run on
+ * its own would.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class ParameterSweepTest
+{
+    private static final int DEPTH = 30, WIDTH = 40, STEPS = 30;
+
+    @Test
+    public void runsAreIndependentOfEachOther() throws InterruptedException
+    {
+        ParameterSweep sweep = new ParameterSweep(DEPTH, WIDTH, STEPS, SimulationParameters.defaults());
+        sweep.addSeed(3);
+        sweep.addSeed(4);
+        sweep.vary(Species.FOX, SimulationParameters.Name.BREEDING_PROBABILITY, 0.2, 0.5);
+        List<RunSummary> summaries = sweep.run(2);
+        assertEquals(4, summaries.size());
+
+        int run = 0;
+        for(double probability : new double[] {0.2, 0.5}) {
+            for(long seed : new long[] {3, 4}) {
+                RunSummary summary = summaries.get(run++);
+                assertEquals(seed, summary.getSeed());
+                assertEquals(probability, summary.getParameters().getBreedingProbability(Species.FOX));
+                assertSameRun(alone(summary.getParameters(), seed), summary);
+            }
+        }
+    }
+
+    /**
+     * Run a simulation on its own, as the sweep runs each of its runs.
+     * @param parameters Its parameters.
+     * @param seed Its seed.
+     * @return Its summary.
+     */
+    private static RunSummary alone(SimulationParameters parameters, long seed)
+    {
+        Simulator simulator = new Simulator(new Field(Terrain.standard(DEPTH, WIDTH)), parameters, seed, 1.0, false);
+        RunSummary summary = new RunSummary(seed, parameters);
+        summary.stepCompleted(simulator.getStep(), simulator.getField());
+        simulator.addObserver(summary);
+        simulator.simulate(STEPS);
+        return summary;
+    }
+
+    /**
+     * Check that two runs went the same way.
+     * @param expected One run.
+     * @param actual The other.
+     */
+    private static void assertSameRun(RunSummary expected, RunSummary actual)
+    {
+        assertEquals(expected.getLastStep(), actual.getLastStep());
+        for(Species species : Species.values()) {
+            assertEquals(expected.getExtinctionStep(species), actual.getExtinctionStep(species), species.toString());
+            assertEquals(expected.getMean(species), actual.getMean(species), species.toString());
+            assertEquals(expected.getVariance(species), actual.getVariance(species), species.toString());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks how a population passes from one generation to the next.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class PopulationTest
+{
+    // Water fills the corner where row * col < 400 of this field.
+    private final Field field = new Field(40, 40);
+
+    @Test
+    public void organismsAddedDuringATurnJoinTheNextGeneration()
+    {
+        Organism rabbit = obtain(Species.RABBIT, 30);
+        Organism crocodile = obtain(Species.CROCODILE, 31);
+        Population population = new Population();
+        population.add(rabbit);
+        population.add(crocodile);
+
+        population.beginGeneration(Activity.NIGHT_ACTIVE);
+        Organism[] generation = population.getGeneration(Activity.NIGHT_ACTIVE);
+        Organism fox = obtain(Species.FOX, 32);
+        Organism newborn = obtain(Species.RABBIT, 33);
+        population.add(fox);
+        population.add(newborn);
+        // Another bucket sitting the step out takes new organisms straight away.
+        Organism other = obtain(Species.CROCODILE, 34);
+        population.add(other);
+        assertEquals(1, population.size(Activity.NIGHT_ACTIVE));
+        assertSame(rabbit, generation[0]);
+        assertEquals(2, population.size(Activity.DAY_ONLY));
+
+        population.endGeneration();
+        assertEquals(2, population.size(Activity.NIGHT_ACTIVE));
+        assertArrayEquals(new Organism[] {fox, newborn, crocodile, other}, toArray(population));
+    }
+
+    @Test
+    public void buffersAreSwappedRatherThanReallocated()
+    {
+        Population population = new Population();
+        population.add(obtain(Species.RABBIT, 30));
+        Organism[] first = population.getGeneration(Activity.NIGHT_ACTIVE);
+        Organism[] second = turn(population, obtain(Species.RABBIT, 31));
+        assertSame(first, turn(population, obtain(Species.RABBIT, 32)));
+        assertSame(second, turn(population, obtain(Species.RABBIT, 33)));
+        // The buffer left behind keeps no organism alive.
+        assertNull(first[0]);
+        assertEquals(1, population.size());
+
+        population.clear();
+        assertEquals(0, population.size());
+        assertEquals(0, toArray(population).length);
+    }
+
+    /**
+     * Run a turn of the night-active bucket in which its organisms are
+     * all replaced by one.
+     * @param population The population.
+     * @param survivor The one organism of the next generation.
+     * @return The buffer the next generation was written into.
+     */
+    private static Organism[] turn(Population population, Organism survivor)
+    {
+        population.beginGeneration(Activity.NIGHT_ACTIVE);
+        population.add(survivor);
+        population.endGeneration();
+        return population.getGeneration(Activity.NIGHT_ACTIVE);
+    }
+
+    /**
+     * @param species A species.
+     * @param col A column of the field's last row, which is land.
+     * @return A new organism of the species there.
+     */
+    private Organism obtain(Species species, int col)
+    {
+        return field.getPool().obtain(species, false, field, field.getLocation(39, col), false);
+    }
+
+    /**
+     * @param population A population.
+     * @return Its organisms, in the order it visits them.
+     */
+    private static Organism[] toArray(Population population)
+    {
+        List<Organism> organisms = new ArrayList<>();
+        for(Organism organism : population) {
+            organisms.add(organism);
+        }
+        return organisms.toArray(new Organism[0]);
+    }
+}
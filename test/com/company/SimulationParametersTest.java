@@ -0,0 +1,56 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that parameters out of range are refused.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class SimulationParametersTest
+{
+    @Test
+    public void grassCannotOutliveItsAgeBits()
+    {
+        SimulationParameters parameters = SimulationParameters.defaults();
+        parameters.set(Species.GRASS, SimulationParameters.Name.MAX_AGE, Grass.MAX_AGE);
+        assertEquals(Grass.MAX_AGE, parameters.getMaxAge(Species.GRASS));
+        assertThrows(IllegalArgumentException.class,
+                     () -> parameters.set(Species.GRASS, SimulationParameters.Name.MAX_AGE, Grass.MAX_AGE + 1));
+        // Only grass keeps its age in a few bits.
+        parameters.set(Species.FOX, SimulationParameters.Name.MAX_AGE, Grass.MAX_AGE + 1);
+    }
+
+    @Test
+    public void valuesOutOfRangeAreRefused()
+    {
+        SimulationParameters parameters = SimulationParameters.defaults();
+        assertThrows(IllegalArgumentException.class,
+                     () -> parameters.set(Species.FOX, SimulationParameters.Name.BREEDING_PROBABILITY, 1.5));
+        assertThrows(IllegalArgumentException.class,
+                     () -> parameters.set(Species.FOX, SimulationParameters.Name.CREATION_PROBABILITY, -0.1));
+        assertThrows(IllegalArgumentException.class,
+                     () -> parameters.set(Species.FOX, SimulationParameters.Name.BREEDING_AGE, -1));
+        assertThrows(IllegalArgumentException.class,
+                     () -> parameters.set(Species.FOX, SimulationParameters.Name.MAX_AGE, 0));
+        assertThrows(IllegalArgumentException.class,
+                     () -> parameters.set(Species.FOX, SimulationParameters.Name.MAX_LITTER_SIZE, 2.5));
+        assertThrows(IllegalArgumentException.class,
+                     () -> parameters.set(Species.FOX, SimulationParameters.Name.BREEDING_PROBABILITY, Double.NaN));
+        assertEquals(SimulationParameters.defaults().getMaxLitterSize(Species.FOX),
+                     parameters.getMaxLitterSize(Species.FOX));
+    }
+
+    @Test
+    public void copyIsIndependent()
+    {
+        SimulationParameters parameters = SimulationParameters.defaults();
+        SimulationParameters copy = parameters.copy();
+        copy.set(Species.RABBIT, SimulationParameters.Name.MAX_AGE, 99);
+        assertEquals(SimulationParameters.defaults().getMaxAge(Species.RABBIT), parameters.getMaxAge(Species.RABBIT));
+        assertEquals(99, copy.getMaxAge(Species.RABBIT));
+    }
+}
@@ -0,0 +1,152 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that a simulation's course depends only on its seed.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class SimulatorTest
+{
+    private static final int DEPTH = 40, WIDTH = 60, STEPS = 80;
+    private static final long SEED = 1118;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void threadCountDoesNotChangeTheSimulation() throws IOException
+    {
+        byte[] single = run(new Field(Terrain.standard(DEPTH, WIDTH)), SEED, 1, "single");
+        assertArrayEquals(single, run(new Field(Terrain.standard(DEPTH, WIDTH)), SEED, 2, "two"));
+        assertArrayEquals(single, run(new Field(Terrain.standard(DEPTH, WIDTH)), SEED, 4, "four"));
+    }
+
+    @Test
+    public void seedDecidesTheSimulation() throws IOException
+    {
+        byte[] first = run(new Field(Terrain.standard(DEPTH, WIDTH)), SEED, 1, "first");
+        assertArrayEquals(first, run(new Field(Terrain.standard(DEPTH, WIDTH)), SEED, 1, "again"));
+        assertFalse(Arrays.equals(first, run(new Field(Terrain.standard(DEPTH, WIDTH)), SEED + 1, 1, "other")));
+    }
+
+    @Test
+    public void streamsDependOnlyOnTheirKey()
+    {
+        Random rand = Randomizer.getRandom();
+        Randomizer.select(SEED, 7, 3);
+        long first = rand.nextLong();
+        Randomizer.select(SEED, 7, 4);
+        long other = rand.nextLong();
+        Randomizer.select(SEED, 7, 3);
+        assertEquals(first, rand.nextLong());
+        assertFalse(first == other);
+    }
+
+    @Test
+    public void populatesOnceWithTheGivenSeedAndParameters()
+    {
+        SimulationParameters parameters = SimulationParameters.defaults();
+        parameters.set(Species.RABBIT, SimulationParameters.Name.CREATION_PROBABILITY, 0.5);
+        Simulator direct = new Simulator(new Field(Terrain.standard(DEPTH, WIDTH)), parameters, SEED, 1.0, false);
+        Simulator reset = new Simulator(new Field(Terrain.standard(DEPTH, WIDTH)), 1.0, false);
+        reset.setParameters(parameters);
+        reset.setSeed(SEED);
+        reset.reset();
+        assertEquals(0, direct.getStep());
+        assertEquals(SEED, direct.getSeed());
+        assertEquals(reset.getField().getStats().getPopulationDetails(),
+                     direct.getField().getStats().getPopulationDetails());
+    }
+
+    @Test
+    public void chunkedFieldRunsAsTheDenseOne() throws IOException
+    {
+        // The two are populated differently, so both start from the dense field's first step.
+        Path start = dir.resolve("start.ckpt");
+        new Simulator(new Field(Terrain.standard(DEPTH, WIDTH)), SimulationParameters.defaults(), SEED, 1.0, false)
+            .saveCheckpoint(start);
+        byte[] dense = run(Simulator.fromCheckpoint(start, false), 1, "dense");
+        assertArrayEquals(dense, run(restored(new ChunkedField(Terrain.standard(DEPTH, WIDTH)), start), 1, "chunked"));
+        assertArrayEquals(dense, run(restored(new ChunkedField(Terrain.standard(DEPTH, WIDTH)), start), 3, "threads"));
+    }
+
+    @Test
+    public void chunkedFieldIsPopulatedAtTheSameDensity() throws IOException
+    {
+        Terrain terrain = Terrain.standard(200, 200);
+        Simulator simulator = new Simulator(new ChunkedField(terrain), SimulationParameters.defaults(), SEED, 0.5, false);
+        // Fish are created last, so nothing takes their place, and only in water.
+        int water = 0;
+        for(int index = 0; index < 200 * 200; index++) {
+            water += terrain.isWater(index) ? 1 : 0;
+        }
+        double expected = water * SimulationParameters.defaults().getCreationProbability(Species.FISH) * 0.5;
+        int count = simulator.getField().getStats().getCount(Species.FISH);
+        // Five standard deviations either way.
+        assertTrue(Math.abs(count - expected) < 5 * Math.sqrt(expected), count + " fish");
+        Field field = simulator.getField();
+        for(int index = 0; index < field.getCellCount(); index++) {
+            Organism organism = field.getObjectAt(index);
+            if(organism != null) {
+                assertTrue(organism.isCorrectTerritory(field.getLocation(index)), "cell " + index);
+            }
+        }
+        Simulator again = new Simulator(new ChunkedField(terrain), SimulationParameters.defaults(), SEED, 0.5, false);
+        assertArrayEquals(run(simulator, 1, "first"), run(again, 1, "again"));
+    }
+
+    /**
+     * Run a simulation and save where it ends up.
+     * @param field The field to run it on.
+     * @param seed Its seed.
+     * @param threads How many threads to step it with.
+     * @param name A name for its checkpoint file.
+     * @return The bytes of the checkpoint, which hold every organism.
+     */
+    private byte[] run(Field field, long seed, int threads, String name) throws IOException
+    {
+        return run(new Simulator(field, SimulationParameters.defaults(), seed, 1.0, false), threads, name);
+    }
+
+    /**
+     * Carry on a simulation and save where it ends up.
+     * @param simulator The simulation.
+     * @param threads How many threads to step it with.
+     * @param name A name for its checkpoint file.
+     * @return The bytes of the checkpoint, which hold every organism.
+     */
+    private byte[] run(Simulator simulator, int threads, String name) throws IOException
+    {
+        simulator.setParallelism(threads);
+        simulator.simulate(STEPS);
+        Path path = dir.resolve(name + ".ckpt");
+        simulator.saveCheckpoint(path);
+        return Files.readAllBytes(path);
+    }
+
+    /**
+     * @param field A field.
+     * @param checkpoint A checkpoint file of a field of the same size.
+     * @return A simulation on the field, restored from the checkpoint.
+     */
+    private static Simulator restored(Field field, Path checkpoint) throws IOException
+    {
+        Simulator simulator = new Simulator(field, 1.0, false);
+        simulator.restore(Checkpoint.read(checkpoint));
+        return simulator;
+    }
+}
@@ -0,0 +1,54 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the ids and bits that stand for species.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class SpeciesTest
+{
+    @Test
+    public void idsAndBitsAreDistinct()
+    {
+        int all = 0;
+        for(Species species : Species.values()) {
+            assertNotEquals(Species.NONE, species.getId());
+            assertEquals(species.getBit(), Species.bitOf(species.getId()));
+            assertEquals(0, all & species.getBit(), species.toString());
+            all |= species.getBit();
+            assertSame(species, Species.of(species.getOrganismClass()));
+        }
+        assertEquals(0, Species.bitOf(Species.NONE));
+        assertEquals(Species.RABBIT.getBit() | Species.GRASS.getBit(),
+                     Species.maskOf(Rabbit.class, Grass.class));
+        assertEquals(0, Species.maskOf());
+        assertThrows(IllegalArgumentException.class, () -> Species.of(Animal.class));
+    }
+
+    @Test
+    public void fieldKeepsTheIdOfEachCell()
+    {
+        // Water fills the corner where row * col < 400: row 0 is water, row 35 land.
+        Field field = new Field(40, 40);
+        for(Species species : Species.values()) {
+            if(!species.isLayer()) {
+                int col = 30 + species.ordinal();
+                int row = species == Species.FISH ? 0 : 35;
+                species.create(false, field, field.getLocation(row, col), false);
+                assertEquals(species.getId(), field.getSpeciesIdAt(row * 40 + col), species.toString());
+            }
+        }
+        // Grass lives in its layer, and leaves the cell empty of organisms.
+        field.plantGrass(36 * 40 + 30, 0, false);
+        assertEquals(Species.NONE, field.getSpeciesIdAt(36 * 40 + 30));
+        assertThrows(IllegalStateException.class,
+                     () -> Species.GRASS.create(false, field, field.getLocation(36, 31), false));
+    }
+}
@@ -0,0 +1,76 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that terrain survives being written and loaded.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class TerrainTest
+{
+    @TempDir
+    Path dir;
+
+    @Test
+    public void mapFileRoundTrip() throws IOException
+    {
+        // A width that is not a multiple of 64, so the last word is partly used.
+        Terrain terrain = Terrain.standard(37, 71);
+        Path map = dir.resolve("terrain.map");
+        terrain.writeMapFile(map);
+        assertSameTerrain(terrain, Terrain.fromMapFile(map));
+        assertSameTerrain(terrain, Terrain.load(map));
+    }
+
+    @Test
+    public void imageBluePixelsAreWater() throws IOException
+    {
+        Terrain terrain = Terrain.standard(30, 45);
+        BufferedImage image = new BufferedImage(45, 30, BufferedImage.TYPE_INT_RGB);
+        for(int row = 0; row < 30; row++) {
+            for(int col = 0; col < 45; col++) {
+                image.setRGB(col, row, terrain.isWater(row * 45 + col) ? 0x2040c0 : 0x30a020);
+            }
+        }
+        Path png = dir.resolve("terrain.png");
+        ImageIO.write(image, "png", png.toFile());
+        assertSameTerrain(terrain, Terrain.load(png));
+    }
+
+    @Test
+    public void truncatedMapFileIsRefused() throws IOException
+    {
+        Path map = dir.resolve("terrain.map");
+        Terrain.standard(37, 71).writeMapFile(map);
+        byte[] bytes = Files.readAllBytes(map);
+        Path truncated = Files.write(dir.resolve("truncated.map"), Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> Terrain.fromMapFile(truncated));
+    }
+
+    /**
+     * Check that two terrains have the same size and the same water.
+     * @param expected The terrain expected.
+     * @param actual The terrain read.
+     */
+    private static void assertSameTerrain(Terrain expected, Terrain actual)
+    {
+        assertEquals(expected.getDepth(), actual.getDepth());
+        assertEquals(expected.getWidth(), actual.getWidth());
+        for(int index = 0; index < expected.getDepth() * expected.getWidth(); index++) {
+            assertEquals(expected.isWater(index), actual.isWater(index), "cell " + index);
+        }
+    }
+}
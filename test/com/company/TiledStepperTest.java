@@ -0,0 +1,42 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the stepper leaves alone the organisms that are asleep.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class TiledStepperTest
+{
+    private static final long SEED = 1118;
+
+    @Test
+    public void asleepBucketSitsTheStepOut()
+    {
+        // Water fills the corner where row * col < 400, so these cells are land.
+        Field field = new Field(40, 40);
+        Organism crocodile = field.getPool().obtain(Species.CROCODILE, false, field, field.getLocation(30, 30), false);
+        Organism rabbit = field.getPool().obtain(Species.RABBIT, false, field, field.getLocation(20, 35), false);
+        Population population = new Population();
+        population.add(crocodile);
+        population.add(rabbit);
+        TiledStepper stepper = new TiledStepper(field, 1, TiledStepper.DEFAULT_TILE_SIZE);
+
+        field.restoreTime(0, false, WeatherType.SUNNY);
+        stepper.step(population, SEED, 1);
+        assertEquals(0, crocodile.getAge());
+        assertSame(field.getLocation(30, 30), crocodile.getLocation());
+        assertSame(crocodile, field.getObjectAt(30, 30));
+        assertEquals(1, rabbit.getAge());
+        assertEquals(2, population.size());
+
+        field.restoreTime(0, true, WeatherType.SUNNY);
+        stepper.step(population, SEED, 2);
+        assertEquals(1, crocodile.getAge());
+        assertEquals(2, rabbit.getAge());
+    }
+}
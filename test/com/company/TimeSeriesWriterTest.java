@@ -0,0 +1,64 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that a binary time series, once decoded, is the CSV one.
+ *
+ * @author Nicholas Pezzotti
+ */
+public class TimeSeriesWriterTest
+{
+    @TempDir
+    Path dir;
+
+    @Test
+    public void binaryDecodesToTheSameCsv() throws IOException
+    {
+        Path csv = dir.resolve("series.csv");
+        Path binary = dir.resolve("series.bin");
+        Simulator simulator = new Simulator(new Field(Terrain.standard(40, 60)), SimulationParameters.defaults(),
+                                            7, 1.0, false);
+        Field field = simulator.getField();
+        try(TimeSeriesWriter csvOut = new TimeSeriesWriter(csv, TimeSeriesWriter.Format.CSV);
+            TimeSeriesWriter binaryOut = new TimeSeriesWriter(binary, TimeSeriesWriter.Format.BINARY)) {
+            // Far-apart steps make the longest varints, in both directions.
+            for(int step : new int[] {0, Integer.MAX_VALUE, 3, 1 << 30}) {
+                csvOut.stepCompleted(step, field);
+                binaryOut.stepCompleted(step, field);
+            }
+            // Enough rows to go round every buffer several times.
+            int step = 0;
+            for(int turn = 0; turn < 60; turn++) {
+                simulator.simulateOneStep();
+                for(int row = 0; row < 500; row++) {
+                    csvOut.stepCompleted(step, field);
+                    binaryOut.stepCompleted(step, field);
+                    step++;
+                }
+            }
+        }
+        Path decoded = dir.resolve("decoded.csv");
+        TimeSeriesWriter.toCsv(binary, decoded);
+        assertArrayEquals(Files.readAllBytes(csv), Files.readAllBytes(decoded));
+    }
+
+    @Test
+    public void unknownWeatherIsRejected() throws IOException
+    {
+        ByteBuffer row = ByteBuffer.allocate(10 + Species.values().length * 2);
+        row.putInt(TimeSeriesWriter.MAGIC).putInt(Species.values().length);
+        row.put((byte) 0).put((byte) (WeatherType.values().length + 1));
+        Path binary = Files.write(dir.resolve("bad.bin"), row.array());
+        assertThrows(IOException.class, () -> TimeSeriesWriter.toCsv(binary, dir.resolve("bad.csv")));
+    }
+}